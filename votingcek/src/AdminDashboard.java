@@ -1,9 +1,11 @@
 import java.awt.*;
 import java.awt.event.*;
-import java.sql.*;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 
-public class AdminDashboard extends JFrame {
+public class AdminDashboard extends JPanel implements AppShell.Screen {
     // Modern Color Scheme (matching LoginPage)
     private static final Color PRIMARY_COLOR = new Color(70, 130, 180);    // Steel Blue
     private static final Color SECONDARY_COLOR = new Color(240, 248, 255); // Alice Blue
@@ -12,9 +14,16 @@ public class AdminDashboard extends JFrame {
     private static final Color SUCCESS_COLOR = new Color(46, 204, 113);    // Green
     private boolean isElectionActive = false;
 
+    private static final String LIST_CARD = "list";
+    private static final String IN_PROGRESS_CARD = "inProgress";
+    private static final String EMPTY_CARD = "empty";
+
     private JPanel resultsPanel;
+    private CardLayout resultsCards;
+    private final ResultsListModel resultsModel = new ResultsListModel();
+    private JList<ResultsListModel.Row> resultsList;
     private JLabel totalVotesLabel;
-    private Timer refreshTimer;
+    private long seenResultsVersion = -1;
     private JTextField studentIdEntry;
     private JButton startVotingBtn;
     private JTextField candidateStudentId;
@@ -23,13 +32,19 @@ public class AdminDashboard extends JFrame {
     private JLabel candidateNameLabel;
     private JButton lookupStudentBtn;
     private JButton addCandidateBtn;
+    private JButton refreshBtn;
+    private JLabel journalLabel;
+    private final DBExecutor.Scope db = DBExecutor.scopeFor(AppShell.getInstance());
+    private final VoteStore store = VoteStore.getInstance();
+    private CompletableFuture<?> pendingLoad;
+    private Scheduler.Task journalWatch;
+    private Scheduler.Task resultsRetry;
+    // The results watch only runs while the dashboard is on screen
+    private boolean shown;
+    private boolean watchingResults;
 
     public AdminDashboard() {
-        setTitle("Admin Dashboard - College Election System");
-        setSize(1000, 700);
-        setLocationRelativeTo(null);
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
-        getContentPane().setBackground(SECONDARY_COLOR);
+        setBackground(SECONDARY_COLOR);
         setLayout(new BorderLayout(15, 15));
 
         // Header Panel
@@ -55,9 +70,44 @@ public class AdminDashboard extends JFrame {
         JPanel footerPanel = createFooterPanel();
         add(footerPanel, BorderLayout.SOUTH);
 
-        setupAutoRefresh();
+        watchElectionState();
+        // Have the ballot ready before the first student ID is typed
+        SwingUtilities.invokeLater(() -> AppShell.getInstance().get(StudentVotingPage.class, StudentVotingPage::new));
+    }
+
+    @Override
+    public String getTitle() {
+        return "Admin Dashboard - College Election System";
+    }
+
+    /**
+     * Every return to the dashboard (login, or back from a ballot) starts clean
+     * and catches up on whatever changed while it was away.
+     */
+    @Override
+    public void onShow() {
+        db.reopen();
+        shown = true;
+        studentIdEntry.setText("");
+        studentIdEntry.requestFocusInWindow();
         loadResults();
-        setVisible(true);
+        if (!watchingResults) {
+            watchResultsVersion();
+        }
+        watchJournalDepth();
+    }
+
+    @Override
+    public void onHide() {
+        shown = false;
+        // Drops whatever is still on its way, the results watch included; onShow starts it again
+        db.cancelAll();
+        watchingResults = false;
+        if (resultsRetry != null) {
+            resultsRetry.cancel();
+            resultsRetry = null;
+        }
+        journalWatch.cancel();
     }
 
     private JPanel createHeaderPanel() {
@@ -85,27 +135,94 @@ public class AdminDashboard extends JFrame {
         mainPanel.setBackground(SECONDARY_COLOR);
         mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
 
-        resultsPanel = new JPanel();
-        resultsPanel.setLayout(new BoxLayout(resultsPanel, BoxLayout.Y_AXIS));
+        resultsCards = new CardLayout();
+        resultsPanel = new JPanel(resultsCards);
         resultsPanel.setBackground(Color.WHITE);
         resultsPanel.setBorder(BorderFactory.createCompoundBorder(
             BorderFactory.createLineBorder(PRIMARY_COLOR, 2, true),
             BorderFactory.createEmptyBorder(20, 20, 20, 20)
         ));
 
-        JScrollPane scrollPane = new JScrollPane(resultsPanel);
+        // One renderer paints every candidate, so thousands of rows cost no components
+        ResultCardRenderer renderer = new ResultCardRenderer();
+        resultsList = new JList<>(resultsModel);
+        resultsList.setCellRenderer(renderer);
+        resultsList.setFixedCellHeight(renderer.getPreferredSize().height);
+        resultsList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultsList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = resultsList.locationToIndex(e.getPoint());
+                if (index < 0) {
+                    return;
+                }
+                Rectangle cell = resultsList.getCellBounds(index, index);
+                if (cell.contains(e.getPoint()) && renderer.isOnDeleteButton(cell, e.getPoint())) {
+                    confirmDelete(resultsModel.getElementAt(index));
+                }
+            }
+        });
+
+        JScrollPane scrollPane = new JScrollPane(resultsList);
         scrollPane.setBorder(null);
-        mainPanel.add(scrollPane);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+        resultsPanel.add(scrollPane, LIST_CARD);
+        resultsPanel.add(createInProgressPanel(), IN_PROGRESS_CARD);
+
+        JLabel msgLabel = new JLabel("No candidates found", SwingConstants.CENTER);
+        msgLabel.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        msgLabel.setForeground(TEXT_COLOR);
+        resultsPanel.add(msgLabel, EMPTY_CARD);
+
+        mainPanel.add(resultsPanel);
 
         return mainPanel;
     }
 
+    private JPanel createInProgressPanel() {
+        // Show election in progress message
+        JPanel messagePanel = new JPanel();
+        messagePanel.setLayout(new BoxLayout(messagePanel, BoxLayout.Y_AXIS));
+        messagePanel.setBackground(new Color(255, 248, 225)); // Light yellow background
+        messagePanel.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(251, 140, 0), 1), // Orange border
+            BorderFactory.createEmptyBorder(20, 20, 20, 20)
+        ));
+
+        JLabel statusLabel = new JLabel("Election is in Progress", SwingConstants.CENTER);
+        statusLabel.setFont(new Font("Segoe UI", Font.BOLD, 22));
+        statusLabel.setForeground(new Color(230, 81, 0)); // Dark orange text
+        statusLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        JLabel infoLabel = new JLabel("<html><center>Vote counts are hidden during active election<br>Results will be displayed when the election ends</center></html>", 
+            SwingConstants.CENTER);
+        infoLabel.setFont(new Font("Segoe UI", Font.PLAIN, 16));
+        infoLabel.setForeground(TEXT_COLOR);
+        infoLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        messagePanel.add(statusLabel);
+        messagePanel.add(Box.createRigidArea(new Dimension(0, 15)));
+        messagePanel.add(infoLabel);
+
+        JPanel wrapper = new JPanel(new BorderLayout());
+        wrapper.setBackground(Color.WHITE);
+        wrapper.add(messagePanel, BorderLayout.NORTH);
+        return wrapper;
+    }
+
     private JPanel createFooterPanel() {
         JPanel footerPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         footerPanel.setBackground(SECONDARY_COLOR);
         footerPanel.setBorder(BorderFactory.createEmptyBorder(0, 20, 20, 20));
 
-        JButton refreshBtn = createStyledButton("Refresh Results");
+        // Only shown while ballots are waiting in the offline journal
+        journalLabel = new JLabel();
+        journalLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        journalLabel.setForeground(new Color(230, 81, 0));
+        journalLabel.setVisible(false);
+        footerPanel.add(journalLabel);
+
+        refreshBtn = createStyledButton("Refresh Results");
         refreshBtn.addActionListener(e -> loadResults());
         footerPanel.add(refreshBtn);
 
@@ -158,188 +275,220 @@ public class AdminDashboard extends JFrame {
         return button;
     }
 
-    private void setupAutoRefresh() {
-        refreshTimer = new Timer(10000, e -> loadResults()); // Refresh every 10 seconds
-        refreshTimer.start();
+    /**
+     * Waits in the background for the results version to move and reloads only then,
+     * instead of rebuilding the results every few seconds whether or not anything changed.
+     */
+    private void watchResultsVersion() {
+        if (!shown) {
+            watchingResults = false;
+            return;
+        }
+        watchingResults = true;
+        db.submit(() -> store.awaitResultsChange(seenResultsVersion, 30_000), version -> {
+            if (version != seenResultsVersion && shown) {
+                seenResultsVersion = version;
+                loadResults();
+            }
+            watchResultsVersion();
+        }, e -> {
+            // Back off and try again; the manual Refresh button still works meanwhile
+            resultsRetry = Scheduler.after("results-watch-retry", Scheduler.Mode.EDT, 5, TimeUnit.SECONDS,
+                this::watchResultsVersion);
+        });
     }
 
-    private void loadResults() {
-        resultsPanel.removeAll();
-        
-        try (Connection con = DBConnection.getConnection()) {
-            // First check if election is active
-            try (PreparedStatement ps = con.prepareStatement("SELECT active FROM election_status WHERE id = 1")) {
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        isElectionActive = rs.getInt("active") == 1;
-                    }
-                }
+    /**
+     * Switches between the "in progress" view and the results as soon as the
+     * election starts or stops, without waiting for a results reload to notice.
+     */
+    private void watchElectionState() {
+        ElectionState.addListener(active -> {
+            if (shown && active != isElectionActive) {
+                loadResults();
             }
+        });
+    }
 
-            if (isElectionActive) {
-                // Show election in progress message
-                JPanel messagePanel = new JPanel();
-                messagePanel.setLayout(new BoxLayout(messagePanel, BoxLayout.Y_AXIS));
-                messagePanel.setBackground(new Color(255, 248, 225)); // Light yellow background
-                messagePanel.setBorder(BorderFactory.createCompoundBorder(
-                    BorderFactory.createLineBorder(new Color(251, 140, 0), 1), // Orange border
-                    BorderFactory.createEmptyBorder(20, 20, 20, 20)
-                ));
-
-                JLabel statusLabel = new JLabel("Election is in Progress", SwingConstants.CENTER);
-                statusLabel.setFont(new Font("Segoe UI", Font.BOLD, 22));
-                statusLabel.setForeground(new Color(230, 81, 0)); // Dark orange text
-                statusLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-
-                JLabel infoLabel = new JLabel("<html><center>Vote counts are hidden during active election<br>Results will be displayed when the election ends</center></html>", 
-                    SwingConstants.CENTER);
-                infoLabel.setFont(new Font("Segoe UI", Font.PLAIN, 16));
-                infoLabel.setForeground(TEXT_COLOR);
-                infoLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-
-                messagePanel.add(statusLabel);
-                messagePanel.add(Box.createRigidArea(new Dimension(0, 15)));
-                messagePanel.add(infoLabel);
-
-                resultsPanel.add(messagePanel);
-                totalVotesLabel.setText("Election in Progress - Results Hidden");
-            } else {
-                // Load results when election is not active
-                try (Statement st = con.createStatement();
-                     ResultSet rs = st.executeQuery(
-                         "SELECT candidate_id, name, position, votes, " +
-                         "(SELECT COUNT(*) FROM student WHERE status='voted') as total_voters " +
-                         "FROM candidate ORDER BY votes DESC")) {
-                    
-                    if (rs.next()) {
-                        int totalVoters = rs.getInt("total_voters");
-                        totalVotesLabel.setText(String.format("Total Voters: %d", totalVoters));
-                        
-                        do {
-                            int candidateId = rs.getInt("candidate_id");
-                            String name = rs.getString("name");
-                            String position = rs.getString("position");
-                            int votes = rs.getInt("votes");
-                            addResultCard(candidateId, name, position, votes, totalVoters);
-                        } while (rs.next());
-                    } else {
-                        JLabel msgLabel = new JLabel("No candidates found", SwingConstants.CENTER);
-                        msgLabel.setFont(new Font("Segoe UI", Font.BOLD, 16));
-                        msgLabel.setForeground(TEXT_COLOR);
-                        resultsPanel.add(msgLabel);
-                        totalVotesLabel.setText("No Data Available");
-                    }
-                }
+    /**
+     * Polls the offline journal's in-memory depth; no database access involved.
+     */
+    private void watchJournalDepth() {
+        // AppShell calls onShow again when the dashboard is already showing; keep to one watch
+        if (journalWatch != null) {
+            journalWatch.cancel();
+        }
+        journalWatch = Scheduler.every("journal-depth", Scheduler.Mode.EDT, 0, 1, TimeUnit.SECONDS, () -> {
+            try {
+                int depth = store.getOfflineBallotCount();
+                journalLabel.setText("Offline ballots waiting: " + depth);
+                journalLabel.setVisible(depth > 0);
+            } catch (IllegalStateException ex) {
+                journalLabel.setText("Offline journal unavailable");
+                journalLabel.setVisible(true);
+                journalWatch.cancel();
             }
-        } catch (SQLException e) {
-            showError("Database error while loading results: " + e.getMessage());
+        });
+    }
+
+    private void loadResults() {
+        // The timer keeps ticking while a slow query runs; don't stack refreshes
+        if (pendingLoad != null && !pendingLoad.isDone()) {
+            return;
         }
 
-        resultsPanel.revalidate();
-        resultsPanel.repaint();
+        // Votes only come back once the election is no longer active
+        VotingEvents.ResultsRefresh event = new VotingEvents.ResultsRefresh();
+        event.begin();
+        pendingLoad = db.submit(store::loadResults, snapshot -> {
+            showResults(snapshot);
+            event.active = snapshot.active;
+            event.candidateCount = snapshot.rows.size();
+            event.totalVoters = snapshot.totalVoters;
+            event.commit();
+        }, e -> {
+            event.failed = true;
+            event.commit();
+            showError("Database error while loading results: " + e.getMessage());
+        }, refreshBtn);
     }
 
-    private void addResultCard(int candidateId, String name, String position, int votes, int totalVoters) {
-        JPanel card = new JPanel();
-        card.setLayout(new BoxLayout(card, BoxLayout.Y_AXIS));
-        card.setBackground(Color.WHITE);
-        card.setBorder(BorderFactory.createCompoundBorder(
-            BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(230, 230, 230)),
-            BorderFactory.createEmptyBorder(15, 15, 15, 15)
-        ));
-        card.setMaximumSize(new Dimension(Integer.MAX_VALUE, 120));
+    private void showResults(ElectionResults snapshot) {
+        isElectionActive = snapshot.active;
+        // Fetch the ballot now rather than when the first voter sits down
+        CandidateSnapshot.preload();
+
+        if (isElectionActive) {
+            resultsModel.update(new ArrayList<>(), 0);
+            resultsCards.show(resultsPanel, IN_PROGRESS_CARD);
+            totalVotesLabel.setText("Election in Progress - Results Hidden");
+        } else if (!snapshot.rows.isEmpty()) {
+            // Only rows whose votes, name or rank changed are repainted
+            resultsModel.update(snapshot.rows, snapshot.totalVoters);
+            resultsCards.show(resultsPanel, LIST_CARD);
+            totalVotesLabel.setText(String.format("Total Voters: %d", snapshot.totalVoters));
+        } else {
+            resultsModel.update(snapshot.rows, 0);
+            resultsCards.show(resultsPanel, EMPTY_CARD);
+            totalVotesLabel.setText("No Data Available");
+        }
+    }
 
-        // Top row: Name
-        JPanel topRow = new JPanel(new BorderLayout(10, 0));
-        topRow.setOpaque(false);
-        
-        JLabel nameLabel = new JLabel(name);
-        nameLabel.setFont(new Font("Segoe UI", Font.BOLD, 16));
-        nameLabel.setForeground(TEXT_COLOR);
-        
-        topRow.add(nameLabel, BorderLayout.WEST);
-        
-        // Middle row: Position
-        JLabel positionLabel = new JLabel("Position: " + position);
-        positionLabel.setFont(new Font("Segoe UI", Font.ITALIC, 14));
-        positionLabel.setForeground(TEXT_COLOR);
-        
-        // Bottom row: Votes and percentage
-        JPanel bottomRow = new JPanel(new BorderLayout(10, 0));
-        bottomRow.setOpaque(false);
-        
-        double percentage = totalVoters > 0 ? (votes * 100.0) / totalVoters : 0;
-        
-        // Show votes only if election is active
-        String votesText = !isElectionActive ? 
-            String.format("Votes: %d (%.1f%%)", votes, percentage) :
-            "Results hidden during active election";
-        JLabel votesLabel = new JLabel(votesText);
-        votesLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
-        votesLabel.setForeground(!isElectionActive && votes > 0 ? SUCCESS_COLOR : TEXT_COLOR);
-        
-        bottomRow.add(votesLabel, BorderLayout.WEST);
-        
-        // Progress bar for votes
-        JProgressBar progress = new JProgressBar(0, Math.max(1, totalVoters));
-        progress.setValue(!isElectionActive ? votes : 0);
-        progress.setStringPainted(true);
-        progress.setString(!isElectionActive ? String.format("%.1f%%", percentage) : "Hidden during election");
-        progress.setForeground(SUCCESS_COLOR);
-        progress.setVisible(!isElectionActive); // Hide progress bar completely during active election
-        progress.setPreferredSize(new Dimension(150, 20));
-        bottomRow.add(progress, BorderLayout.EAST);
-
-        // Delete button
-        JButton deleteBtn = new JButton("Delete");
-        deleteBtn.setForeground(Color.WHITE);
-        deleteBtn.setBackground(Color.RED);
-        deleteBtn.setFocusPainted(false);
-        deleteBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        deleteBtn.addActionListener(e -> {
-            int confirm = JOptionPane.showConfirmDialog(this,
-                "Are you sure you want to delete candidate '" + name + "'?",
-                "Confirm Delete",
-                JOptionPane.YES_NO_OPTION,
-                JOptionPane.WARNING_MESSAGE);
-            if (confirm == JOptionPane.YES_OPTION) {
-                deleteCandidate(candidateId);
-            }
-        });
-        bottomRow.add(deleteBtn, BorderLayout.CENTER);
+    private void confirmDelete(ResultsListModel.Row row) {
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Are you sure you want to delete candidate '" + row.name + "'?",
+            "Confirm Delete",
+            JOptionPane.YES_NO_OPTION,
+            JOptionPane.WARNING_MESSAGE);
+        if (confirm == JOptionPane.YES_OPTION) {
+            deleteCandidate(row.candidateId);
+        }
+    }
+
+    /**
+     * Paints one result card per candidate from a single set of reused components.
+     * The Delete button is only drawn; clicks are hit-tested in the list's mouse listener.
+     */
+    private class ResultCardRenderer extends JPanel implements ListCellRenderer<ResultsListModel.Row> {
+        private final JLabel nameLabel = new JLabel();
+        private final JLabel positionLabel = new JLabel();
+        private final JLabel votesLabel = new JLabel();
+        private final JProgressBar progress = new JProgressBar();
+        private final JButton deleteBtn = new JButton("Delete");
+
+        ResultCardRenderer() {
+            super(new BorderLayout(10, 0));
+            setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(230, 230, 230)),
+                BorderFactory.createEmptyBorder(15, 15, 15, 15)
+            ));
+
+            nameLabel.setFont(new Font("Segoe UI", Font.BOLD, 16));
+            nameLabel.setForeground(TEXT_COLOR);
+            positionLabel.setFont(new Font("Segoe UI", Font.ITALIC, 14));
+            positionLabel.setForeground(TEXT_COLOR);
+            votesLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+
+            progress.setStringPainted(true);
+            progress.setForeground(SUCCESS_COLOR);
+            progress.setPreferredSize(new Dimension(150, 20));
+
+            deleteBtn.setForeground(Color.WHITE);
+            deleteBtn.setBackground(Color.RED);
+            deleteBtn.setFocusPainted(false);
+
+            JPanel info = new JPanel();
+            info.setLayout(new BoxLayout(info, BoxLayout.Y_AXIS));
+            info.setOpaque(false);
+            JPanel bottomRow = new JPanel(new BorderLayout(10, 0));
+            bottomRow.setOpaque(false);
+            bottomRow.add(votesLabel, BorderLayout.WEST);
+            bottomRow.add(progress, BorderLayout.EAST);
+            nameLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            positionLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            bottomRow.setAlignmentX(Component.LEFT_ALIGNMENT);
+            info.add(nameLabel);
+            info.add(Box.createRigidArea(new Dimension(0, 5)));
+            info.add(positionLabel);
+            info.add(Box.createRigidArea(new Dimension(0, 5)));
+            info.add(bottomRow);
+
+            JPanel deleteWrapper = new JPanel(new GridBagLayout());
+            deleteWrapper.setOpaque(false);
+            deleteWrapper.add(deleteBtn);
+
+            add(info, BorderLayout.CENTER);
+            add(deleteWrapper, BorderLayout.EAST);
+
+            nameLabel.setText("Candidate");
+            positionLabel.setText("Position: -");
+            votesLabel.setText("Votes: 0 (0.0%)");
+        }
 
-        card.add(topRow);
-        card.add(Box.createRigidArea(new Dimension(0, 5)));
-        card.add(positionLabel);
-        card.add(Box.createRigidArea(new Dimension(0, 5)));
-        card.add(bottomRow);
+        @Override
+        public Component getListCellRendererComponent(JList<? extends ResultsListModel.Row> list,
+                                                      ResultsListModel.Row row, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            int totalVoters = resultsModel.getTotalVoters();
+            double percentage = totalVoters > 0 ? (row.votes * 100.0) / totalVoters : 0;
+
+            setBackground(isSelected ? SECONDARY_COLOR : Color.WHITE);
+            nameLabel.setText(row.name);
+            positionLabel.setText("Position: " + row.position);
+            votesLabel.setText(String.format("Votes: %d (%.1f%%)", row.votes, percentage));
+            votesLabel.setForeground(row.votes > 0 ? SUCCESS_COLOR : TEXT_COLOR);
+            progress.setMaximum(Math.max(1, totalVoters));
+            progress.setValue(row.votes);
+            progress.setString(String.format("%.1f%%", percentage));
+            return this;
+        }
 
-        resultsPanel.add(card);
-        resultsPanel.add(Box.createRigidArea(new Dimension(0, 10)));
+        /**
+         * True when {@code p} (list coordinates) is over the painted Delete button of the cell at {@code cell}.
+         */
+        boolean isOnDeleteButton(Rectangle cell, Point p) {
+            // Lay out by hand: the renderer has no peer, so validate() would do nothing
+            setBounds(0, 0, cell.width, cell.height);
+            doLayout();
+            deleteBtn.getParent().doLayout();
+            Rectangle button = SwingUtilities.convertRectangle(deleteBtn.getParent(), deleteBtn.getBounds(), this);
+            return button.contains(p.x - cell.x, p.y - cell.y);
+        }
     }
 
     private void deleteCandidate(int candidateId) {
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement ps = con.prepareStatement("DELETE FROM candidate WHERE candidate_id = ?")) {
-            ps.setInt(1, candidateId);
-            int affected = ps.executeUpdate();
-            if (affected > 0) {
+        db.submit(() -> store.deleteCandidate(candidateId), deleted -> {
+            if (deleted) {
                 showSuccess("Candidate deleted successfully.");
                 loadResults();
             } else {
                 showError("Candidate not found or could not be deleted.");
             }
-        } catch (SQLException e) {
-            showError("Error deleting candidate: " + e.getMessage());
-        }
+        }, e -> showError("Error deleting candidate: " + e.getMessage()));
     }
 
     private void logout() {
-        if (refreshTimer != null) {
-            refreshTimer.stop();
-        }
-        dispose();
-        new LoginPage().setVisible(true);
+        AppShell.getInstance().show(LoginPage.class, LoginPage::new);
     }
 
     private void startVotingForStudent() {
@@ -349,45 +498,48 @@ public class AdminDashboard extends JFrame {
             return;
         }
 
-        try (Connection con = DBConnection.getConnection()) {
-            // Check election active
-            try (PreparedStatement ps = con.prepareStatement("SELECT active FROM election_status WHERE id = 1")) {
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        int active = rs.getInt("active");
-                        if (active != 1) {
-                            showError("Election is not active. Please ask Super Admin to start the election.");
-                            return;
-                        }
-                    } else {
-                        showError("Election status not configured. Contact Super Admin.");
-                        return;
-                    }
-                }
-            }
+        VotingEvents.SessionOpen event = new VotingEvents.SessionOpen();
+        event.setStudent(sid);
+        event.begin();
 
-            // Check student exists and not voted
-            try (PreparedStatement ps = con.prepareStatement("SELECT status FROM student WHERE student_id = ?")) {
-                ps.setString(1, sid);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (!rs.next()) {
-                        showError("Student ID not found: " + sid);
-                        return;
-                    }
-                    String status = rs.getString("status");
-                    if ("voted".equalsIgnoreCase(status)) {
-                        showError("Student has already voted.");
-                        return;
-                    }
-                }
+        // One conditional UPDATE checks the election and the student and reserves them
+        db.acquire(() -> store.claimVoter(sid), claim -> {
+            event.granted = claim.isGranted();
+            if (!claim.isGranted()) {
+                event.commit();
+                showError(claim.getRefusal());
+                return;
             }
-
-            // All good — open StudentVotingPage
-            new StudentVotingPage(sid).setVisible(true);
-            dispose();
-
-        } catch (SQLException e) {
+            // All good — show the ready-built ballot; this dashboard waits behind it for the next voter
+            AppShell.getInstance().get(StudentVotingPage.class, StudentVotingPage::new)
+                .open(claim, this::votingFinished);
+            event.commit();
+        }, claim -> {
+            // Logged out while the claim was on its way: no ballot opens, so give the student back
+            event.granted = claim.isGranted();
+            event.commit();
+            if (claim.isGranted()) {
+                DBExecutor.submit(() -> {
+                    store.releaseClaim(claim);
+                    return null;
+                }).exceptionally(e -> {
+                    // The lease still expires on its own
+                    System.err.println("Could not release claim for " + sid + ": " + DBExecutor.unwrap(e).getMessage());
+                    return null;
+                });
+            }
+        }, e -> {
+            event.commit();
             showError("Database error: " + e.getMessage());
+        }, startVotingBtn, studentIdEntry);
+    }
+
+    private void votingFinished(boolean timedOut) {
+        if (timedOut) {
+            // An abandoned session logs the kiosk out, as before
+            AppShell.getInstance().show(LoginPage.class, LoginPage::new);
+        } else {
+            AppShell.getInstance().show(AdminDashboard.class, AdminDashboard::new);
         }
     }
 
@@ -475,38 +627,31 @@ public class AdminDashboard extends JFrame {
             return;
         }
 
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement ps = con.prepareStatement(
-                 "SELECT student_id FROM student WHERE student_id = ?")) {
-            
-            ps.setString(1, studentId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) {
-                    showError("Student not found");
-                    addCandidateBtn.setEnabled(false);
+        addCandidateBtn.setEnabled(false);
+        // Returns null when the student can be registered, otherwise the reason they can't
+        db.submit(() -> {
+            if (!store.studentExists(studentId)) {
+                return "Student not found";
+            }
+            // Check if already a candidate
+            if (store.isCandidate(studentId)) {
+                return "This student is already registered as a candidate";
+            }
+            return null;
+        }, problem -> {
+            if (problem != null) {
+                showError(problem);
+                if (problem.equals("Student not found")) {
                     candidateNameLabel.setText("Name: Not found");
-                    return;
                 }
-
-                // Check if already a candidate
-                try (PreparedStatement checkPs = con.prepareStatement(
-                        "SELECT 1 FROM candidate WHERE name = ?")) {
-                    checkPs.setString(1, studentId);
-                    if (checkPs.executeQuery().next()) {
-                        showError("This student is already registered as a candidate");
-                        addCandidateBtn.setEnabled(false);
-                        return;
-                    }
-                }
-
-                // Populate the editable name field (prefill with student ID)
-                candidateNameField.setText(studentId);
-                candidateNameLabel.setText("Name: ");
-                addCandidateBtn.setEnabled(true);
+                return;
             }
-        } catch (SQLException e) {
-            showError("Database error: " + e.getMessage());
-        }
+            // Populate the editable name field (prefill with student ID)
+            candidateNameField.setText(studentId);
+            candidateNameLabel.setText("Name: ");
+            addCandidateBtn.setEnabled(true);
+        }, e -> showError("Database error: " + e.getMessage()),
+            lookupStudentBtn);
     }
 
     private void addCandidate() {
@@ -518,20 +663,16 @@ public class AdminDashboard extends JFrame {
             return;
         }
 
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement ps = con.prepareStatement(
-                 "INSERT INTO candidate(name, position, votes) VALUES(?, ?, 0)")) {
-            
-            String displayName = candidateNameField.getText().trim();
-            if (displayName.isEmpty()) {
-                showError("Please enter a name for the candidate");
-                return;
-            }
-
-            ps.setString(1, displayName);
-            ps.setString(2, position);
-            ps.executeUpdate();
+        String displayName = candidateNameField.getText().trim();
+        if (displayName.isEmpty()) {
+            showError("Please enter a name for the candidate");
+            return;
+        }
 
+        db.submit(() -> {
+            store.addCandidate(displayName, position);
+            return null;
+        }, done -> {
             showSuccess("Candidate registered successfully!");
             // Clear form
             candidateStudentId.setText("");
@@ -540,9 +681,9 @@ public class AdminDashboard extends JFrame {
             addCandidateBtn.setEnabled(false);
             // Refresh results
             loadResults();
-
-        } catch (SQLException e) {
+        }, e -> {
             showError("Error registering candidate: " + e.getMessage());
-        }
+            addCandidateBtn.setEnabled(true);
+        }, addCandidateBtn);
     }
 }
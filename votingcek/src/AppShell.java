@@ -0,0 +1,100 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.swing.*;
+
+/**
+ * The application's one window. Login, the dashboards and the ballot are
+ * screens in a CardLayout: each is built the first time it's needed and kept,
+ * so moving between them only swaps the card and lets the screen refresh its
+ * data in onShow(), instead of building a new frame (and re-running every
+ * constructor query) on each login, logout or ballot. EDT only.
+ */
+public final class AppShell extends JFrame {
+    /**
+     * A screen the shell can show.
+     */
+    public interface Screen {
+        /** Window title while this screen is showing. */
+        String getTitle();
+
+        /** Called every time the screen comes to the front; refresh whatever may have changed. */
+        default void onShow() {
+        }
+
+        /** Called when another screen replaces this one; stop anything only needed while visible. */
+        default void onHide() {
+        }
+
+        /** Whether closing the window is allowed now; a screen saying no explains why itself. */
+        default boolean confirmClose() {
+            return true;
+        }
+    }
+
+    private static AppShell instance;
+
+    private final CardLayout cards = new CardLayout();
+    private final JPanel content = new JPanel(cards);
+    private final Map<Class<?>, JComponent> screens = new HashMap<>();
+    private Screen current;
+
+    public static AppShell getInstance() {
+        if (instance == null) {
+            instance = new AppShell();
+        }
+        return instance;
+    }
+
+    private AppShell() {
+        setTitle("College Election Voting System");
+        setSize(1000, 700);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        setContentPane(content);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (current == null || current.confirmClose()) {
+                    System.exit(0);
+                }
+            }
+        });
+    }
+
+    /**
+     * The cached screen of this type, building it first if this is the first call.
+     * Doesn't show it; use this to have a screen ready ahead of time.
+     */
+    public <T extends JComponent & Screen> T get(Class<T> type, Supplier<T> factory) {
+        JComponent screen = screens.get(type);
+        if (screen == null) {
+            screen = factory.get();
+            screens.put(type, screen);
+            content.add(screen, type.getName());
+        }
+        return type.cast(screen);
+    }
+
+    /**
+     * Brings the screen of this type to the front, building it if needed.
+     */
+    public <T extends JComponent & Screen> T show(Class<T> type, Supplier<T> factory) {
+        T screen = get(type, factory);
+        if (current != screen) {
+            if (current != null) {
+                current.onHide();
+            }
+            current = screen;
+            cards.show(content, type.getName());
+        }
+        setTitle(screen.getTitle());
+        screen.onShow();
+        if (!isVisible()) {
+            setVisible(true);
+        }
+        return screen;
+    }
+}
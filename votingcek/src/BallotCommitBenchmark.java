@@ -0,0 +1,106 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Per-ballot commit latency of a lone ballot: the batched path
+ * (BallotIngestor.writeBatch with one ballot) against the single round trip
+ * through BallotProcedure.
+ *
+ * Both paths write real ledger rows and counters, so this runs against a
+ * scratch database of its own, never the election database:
+ *   java -cp bin:lib/* BallotCommitBenchmark jdbc:mysql://host:3306/voting_bench user pass [ballots]
+ * The database must exist and be empty; the tables are created here.
+ */
+public class BallotCommitBenchmark {
+    private static final int CANDIDATES = 4;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: BallotCommitBenchmark <scratch-jdbc-url> <user> <pass> [ballots]");
+            System.exit(2);
+        }
+        int ballots = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+
+        try (Connection con = DriverManager.getConnection(args[0], args[1], args[2])) {
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT DATABASE()")) {
+                if (rs.next() && "college_voting".equalsIgnoreCase(rs.getString(1))) {
+                    throw new IllegalArgumentException("Refusing to benchmark against the election database");
+                }
+            }
+            setUp(con, ballots * 2);
+            if (!BallotProcedure.isAvailable(con)) {
+                throw new IllegalStateException("Could not install " + BallotProcedure.NAME);
+            }
+
+            System.out.printf("%-10s %8s %10s %10s %10s %10s%n", "path", "ballots", "mean ms", "p50 ms", "p99 ms", "max ms");
+            report("batched", run(con, ballots, 0, false));
+            report("procedure", run(con, ballots, ballots, true));
+        }
+    }
+
+    private static void setUp(Connection con, int students) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS student (student_id VARCHAR(20) PRIMARY KEY, "
+                + "admin_id INT NULL, status ENUM('not_voted','voted') NOT NULL DEFAULT 'not_voted')");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS candidate (candidate_id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "name VARCHAR(100), position VARCHAR(100), votes INT NOT NULL DEFAULT 0)");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS election_status (id INT PRIMARY KEY, active TINYINT NOT NULL DEFAULT 0)");
+            st.executeUpdate("INSERT IGNORE INTO election_status VALUES (1, 1)");
+            for (int i = 1; i <= CANDIDATES; i++) {
+                st.executeUpdate("INSERT IGNORE INTO candidate(candidate_id, name, position) VALUES ("
+                    + i + ", 'bench " + i + "', 'bench')");
+            }
+        }
+        try (PreparedStatement ps = con.prepareStatement("INSERT IGNORE INTO student(student_id) VALUES (?)")) {
+            for (int i = 0; i < students; i++) {
+                ps.setString(1, studentId(i));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static String studentId(int i) {
+        return String.format("bench%07d", i);
+    }
+
+    private static long[] run(Connection con, int ballots, int firstStudent, boolean procedure) throws SQLException {
+        long[] nanos = new long[ballots];
+        for (int i = 0; i < ballots; i++) {
+            String student = studentId(firstStudent + i);
+            List<Integer> choice = new ArrayList<>();
+            choice.add(i % CANDIDATES + 1);
+            choice.add((i + 1) % CANDIDATES + 1);
+
+            String ballotId = UUID.randomUUID().toString();
+
+            long start = System.nanoTime();
+            BallotOutcome outcome = procedure
+                ? BallotProcedure.cast(con, ballotId, student, choice)
+                : BallotIngestor.writeBatch(con, List.of(ballotId), List.of(student), List.of(choice), null, true)[0];
+            nanos[i] = System.nanoTime() - start;
+            if (outcome != BallotOutcome.ACCEPTED) {
+                throw new IllegalStateException(student + ": " + outcome + " (is the scratch database empty?)");
+            }
+        }
+        return nanos;
+    }
+
+    private static void report(String path, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0);
+        System.out.printf("%-10s %8d %10.3f %10.3f %10.3f %10.3f%n", path, sorted.length,
+            mean / 1e6, percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6,
+            sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,457 @@
+import java.io.IOException;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Group-commit stage for ballots.
+ *
+ * Kiosks submit ballots into a bounded queue; a single writer thread drains
+ * them in micro-batches (up to maxBatch ballots or maxLingerMillis of waiting,
+ * whichever comes first) and commits each batch in one transaction, with the
+ * candidate increments aggregated per batch. A ballot that arrives alone goes
+ * through BallotProcedure instead, in a single round trip. Every submitter
+ * still gets its own future, completed only once its batch has committed.
+ *
+ * Every ballot carries the id its voting session generated, and the commit
+ * paths answer ACCEPTED for an id already in the ledger. That makes a lost
+ * acknowledgement safe to retry, so commits run with a short network timeout
+ * and are retried on a fresh connection straight away instead of waiting
+ * out a dead socket.
+ *
+ * If the database still can't be reached, the batch goes to the local
+ * BallotJournal and voters are acknowledged with RECORDED_OFFLINE. For
+ * OFFLINE_HOLD_MS after that, new ballots go straight to the journal too, so
+ * voters don't each wait out the timeouts; then the database is tried again.
+ * The journal's replayer drains its backlog once MySQL is back.
+ *
+ * Tunables (system properties): voting.queue.capacity, voting.batch.max,
+ * voting.batch.lingerMs, voting.commit.timeoutMs, voting.commit.attempts.
+ */
+public class BallotIngestor {
+    private static final int COMMIT_TIMEOUT_MS = Integer.getInteger("voting.commit.timeoutMs", 3000);
+    private static final int COMMIT_ATTEMPTS = Integer.getInteger("voting.commit.attempts", 3);
+    private static final long RETRY_BACKOFF_MS = 50;
+    private static final long OFFLINE_HOLD_MS = 2000;
+
+    private static BallotIngestor instance;
+
+    private final BlockingQueue<Ballot> queue;
+    private final int maxBatch;
+    private final long maxLingerMillis;
+    private final Thread writer;
+    // Writer thread only: until when to skip the database after it was unreachable
+    private long offlineUntil;
+
+    public static synchronized BallotIngestor getInstance() {
+        if (instance == null) {
+            instance = new BallotIngestor(
+                Integer.getInteger("voting.queue.capacity", 512),
+                Integer.getInteger("voting.batch.max", 64),
+                Long.getLong("voting.batch.lingerMs", 10));
+        }
+        return instance;
+    }
+
+    public BallotIngestor(int capacity, int maxBatch, long maxLingerMillis) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.maxLingerMillis = maxLingerMillis;
+        this.writer = new Thread(this::writeLoop, "ballot-ingestor");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a ballot. The returned future completes with the ballot's outcome
+     * once its batch has committed (or was turned away), or fails if the batch
+     * could not be written. When the queue is full the future fails immediately
+     * with a RejectedExecutionException so the kiosk can ask the voter to retry.
+     * Resubmitting with the same ballotId never counts a ballot twice.
+     */
+    public CompletableFuture<BallotOutcome> submit(String ballotId, String studentId, List<Integer> candidateIds) {
+        Ballot ballot = new Ballot(ballotId, studentId, candidateIds);
+        if (!queue.offer(ballot)) {
+            ballot.result.completeExceptionally(new RejectedExecutionException(
+                "The voting system is busy right now. Please try again in a moment."));
+        }
+        return ballot.result;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void writeLoop() {
+        List<Ballot> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || remaining <= 0) {
+                        break;
+                    }
+                    Ballot next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                for (Ballot b : batch) {
+                    b.result.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitBatch(List<Ballot> batch) {
+        // A kiosk that gave up before we got here doesn't want its ballot counted
+        batch.removeIf(b -> b.result.isCancelled());
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        VotingEvents.BallotCommit event = new VotingEvents.BallotCommit();
+        event.begin();
+        event.ballots = batch.size();
+        try {
+            if (!acknowledge(batch, event)) {
+                return;
+            }
+        } finally {
+            event.commit();
+        }
+
+        // Voters are acknowledged; now move the results version (in its own statement, so ballot
+        // transactions never queue on that one row) and keep the materialized tallies current.
+        // A failure here just leaves the change for the next batch or reader to pick up.
+        try (Connection con = DBConnection.getBackgroundConnection("tally.fold")) {
+            ResultsVersion.bump(con);
+            ResultsVersion.nudge();
+            TallyEngine.catchUp(con);
+        } catch (SQLException e) {
+            System.err.println("Results update after commit failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the batch (or journals it) and completes every ballot's future.
+     *
+     * @return whether any ballot was accepted
+     */
+    private boolean acknowledge(List<Ballot> batch, VotingEvents.BallotCommit event) {
+        if (System.currentTimeMillis() < offlineUntil) {
+            // Just found the database unreachable: don't make these voters wait out the timeouts too
+            event.offline = true;
+            journal(batch, null);
+            return false;
+        }
+
+        BallotOutcome[] outcomes;
+        try {
+            outcomes = writeWithRetry(batch);
+        } catch (SQLException e) {
+            if (isConnectionFailure(e)) {
+                // Whether or not the commit landed, replay is safe: the ballot ids dedupe it
+                event.offline = true;
+                offlineUntil = System.currentTimeMillis() + OFFLINE_HOLD_MS;
+                journal(batch, e);
+                return false;
+            }
+            event.failed = true;
+            // The server is there but swamped: push back like a full queue, the voter tries again
+            Exception failure = isBusy(e) ? new RejectedExecutionException(
+                "The voting system is busy right now. Please try again in a moment.", e) : e;
+            for (Ballot b : batch) {
+                b.result.completeExceptionally(failure);
+            }
+            return false;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result.complete(outcomes[i]);
+            if (outcomes[i] == BallotOutcome.ACCEPTED) {
+                event.rowsAffected++;
+            }
+        }
+        return event.rowsAffected > 0;
+    }
+
+    private void journal(List<Ballot> batch, SQLException cause) {
+        if (cause != null) {
+            System.err.println("Database unreachable, journaling " + batch.size() + " ballots: " + cause.getMessage());
+        }
+        BallotJournal journal = BallotJournal.getInstance();
+        for (Ballot b : batch) {
+            try {
+                journal.append(b.ballotId, b.studentId, b.candidateIds);
+                b.result.complete(BallotOutcome.RECORDED_OFFLINE);
+            } catch (IOException e) {
+                SQLException failure = new SQLException("Database unreachable and ballot journal failed: "
+                    + e.getMessage(), cause);
+                b.result.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * Writes the batch, retrying on a fresh connection when the network drops,
+     * times out or no connection is free. Safe because a ballot id that made it in is answered
+     * ACCEPTED again rather than counted twice.
+     */
+    private BallotOutcome[] writeWithRetry(List<Ballot> batch) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection con = DBConnection.getBackgroundConnection("vote.commit")) {
+                con.setNetworkTimeout(Runnable::run, COMMIT_TIMEOUT_MS);
+                try {
+                    return write(con, batch);
+                } finally {
+                    if (!con.isClosed()) {
+                        con.setNetworkTimeout(Runnable::run, 0);
+                    }
+                }
+            } catch (SQLException e) {
+                if (!(isConnectionFailure(e) || isBusy(e)) || attempt >= COMMIT_ATTEMPTS) {
+                    throw e;
+                }
+                System.err.println("Ballot commit attempt " + attempt + " failed, retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MS * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static BallotOutcome[] write(Connection con, List<Ballot> batch) throws SQLException {
+        if (batch.size() == 1 && BallotProcedure.isAvailable(con)) {
+            // Quiet period: one voter, one round trip
+            Ballot b = batch.get(0);
+            return new BallotOutcome[] {
+                LockRetry.run(() -> BallotProcedure.cast(con, b.ballotId, b.studentId, b.candidateIds)) };
+        }
+        List<String> ballotIds = new ArrayList<>(batch.size());
+        List<String> studentIds = new ArrayList<>(batch.size());
+        List<List<Integer>> choices = new ArrayList<>(batch.size());
+        for (Ballot b : batch) {
+            ballotIds.add(b.ballotId);
+            studentIds.add(b.studentId);
+            choices.add(b.candidateIds);
+        }
+        // Both paths roll back on failure, so a deadlock victim can simply run again
+        return LockRetry.run(() -> writeBatch(con, ballotIds, studentIds, choices, null, true));
+    }
+
+    /**
+     * The database can't be reached (SQLState class 08, or the driver says only
+     * a new connection could help). Only this sends ballots to the journal.
+     */
+    static boolean isConnectionFailure(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The database answered but couldn't serve us in time: the pool had no free
+     * connection, or a statement outlived the network timeout waiting on a lock.
+     * Worth retrying, but not a reason to go offline.
+     */
+    static boolean isBusy(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException || t instanceof SQLTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Commits a batch of ballots in one transaction with the increments
+     * aggregated per candidate. The journal replayer passes
+     * requireActiveElection = false: its ballots were cast while the election
+     * was open, even if it has closed since, and passes the journaled cast
+     * times so its ledger rows keep when the ballot was cast rather than when
+     * it was replayed.
+     *
+     * @param castTimes per-ballot cast time, or null to stamp every row with now
+     * @return one outcome per ballot, in order
+     */
+    static BallotOutcome[] writeBatch(Connection con, List<String> ballotIds, List<String> studentIds,
+                                      List<List<Integer>> choices, List<Timestamp> castTimes,
+                                      boolean requireActiveElection) throws SQLException {
+        TallyEngine.ensureSchema(con);
+        BallotOutcome[] outcomes = new BallotOutcome[studentIds.size()];
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try {
+            // Shared lock: stopping the election waits for this batch instead of racing it
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT active FROM election_status WHERE id = 1 LOCK IN SHARE MODE")) {
+                if (requireActiveElection && (!rs.next() || rs.getInt(1) != 1)) {
+                    con.rollback();
+                    // Retries of ballots that committed before the close still count as accepted
+                    Set<String> recorded = BallotLedger.findRecorded(con, ballotIds);
+                    con.rollback();
+                    for (int i = 0; i < outcomes.length; i++) {
+                        outcomes[i] = recorded.contains(ballotIds.get(i))
+                            ? BallotOutcome.ACCEPTED : BallotOutcome.ELECTION_CLOSED;
+                    }
+                    return outcomes;
+                }
+            }
+
+            // A candidate deleted since the ballot was shown would fail the shard FK for the whole
+            // batch, so turn away just the ballots naming one (unless already counted on an earlier try)
+            boolean[] duplicate = new boolean[outcomes.length];
+            Set<Integer> standing = lockCandidates(con, choices);
+            List<String> invalid = new ArrayList<>();
+            for (int i = 0; i < outcomes.length; i++) {
+                if (!standing.containsAll(choices.get(i))) invalid.add(ballotIds.get(i));
+            }
+            Set<String> counted = BallotLedger.findRecorded(con, invalid);
+            for (int i = 0; i < outcomes.length; i++) {
+                if (standing.containsAll(choices.get(i))) continue;
+                if (counted.contains(ballotIds.get(i))) {
+                    outcomes[i] = BallotOutcome.ACCEPTED;
+                    duplicate[i] = true;
+                } else {
+                    outcomes[i] = BallotOutcome.INVALID_CANDIDATE;
+                }
+            }
+
+            // Flip every voter in one batch; a zero count means already voted (or unknown ID).
+            // Rows are locked in student_id order so concurrent batches can't deadlock on each other.
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] == null) order.add(i);
+            }
+            order.sort(Comparator.comparing(studentIds::get));
+            try (PreparedStatement ps = con.prepareStatement(
+                    "UPDATE student SET status = 'voted' WHERE student_id = ? AND status <> 'voted'")) {
+                for (int i : order) {
+                    ps.setString(1, studentIds.get(i));
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+                for (int k = 0; k < counts.length; k++) {
+                    outcomes[order.get(k)] = counts[k] != 0 ? BallotOutcome.ACCEPTED : BallotOutcome.ALREADY_VOTED;
+                }
+            }
+
+            // A refused flip may be this ballot's own earlier attempt: answer it, but count nothing
+            List<String> refused = new ArrayList<>();
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] == BallotOutcome.ALREADY_VOTED) refused.add(ballotIds.get(i));
+            }
+            Set<String> recorded = BallotLedger.findRecorded(con, refused);
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] == BallotOutcome.ALREADY_VOTED && recorded.contains(ballotIds.get(i))) {
+                    outcomes[i] = BallotOutcome.ACCEPTED;
+                    duplicate[i] = true;
+                }
+            }
+
+            // Aggregate the increments so each candidate row is touched once per batch,
+            // in ascending candidate_id order (TreeMap) like every other ballot writer
+            Map<Integer, Integer> increments = new TreeMap<>();
+            List<String> ledgerIds = new ArrayList<>();
+            List<String> ledgerStudents = new ArrayList<>();
+            List<List<Integer>> ledgerChoices = new ArrayList<>();
+            List<Timestamp> ledgerTimes = new ArrayList<>();
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] != BallotOutcome.ACCEPTED || duplicate[i]) continue;
+                ledgerIds.add(ballotIds.get(i));
+                ledgerStudents.add(studentIds.get(i));
+                ledgerChoices.add(choices.get(i));
+                ledgerTimes.add(castTimes == null ? null : castTimes.get(i));
+                for (int candidateId : choices.get(i)) {
+                    increments.merge(candidateId, 1, Integer::sum);
+                }
+            }
+
+            if (!ledgerStudents.isEmpty()) {
+                BallotLedger.append(con, ledgerIds, ledgerStudents, ledgerChoices, ledgerTimes, BallotLedger.KIOSK_ID);
+
+                int slot = VoteCounters.pickSlot();
+                for (Map.Entry<Integer, Integer> e : increments.entrySet()) {
+                    VoteCounters.addCandidateVotes(con, e.getKey(), slot, e.getValue());
+                }
+                VoteCounters.addTotalVotes(con, slot, ledgerStudents.size());
+            }
+
+            con.commit();
+            return outcomes;
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Which of the candidates named on these ballots still exist. Share-locked,
+     * so none of them can be deleted before the batch commits.
+     */
+    private static Set<Integer> lockCandidates(Connection con, List<List<Integer>> choices) throws SQLException {
+        Set<Integer> named = new TreeSet<>();
+        for (List<Integer> ids : choices) {
+            named.addAll(ids);
+        }
+        Set<Integer> found = new HashSet<>();
+        if (named.isEmpty()) {
+            return found;
+        }
+        StringBuilder sql = new StringBuilder("SELECT candidate_id FROM candidate WHERE candidate_id IN (");
+        for (int i = 0; i < named.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") LOCK IN SHARE MODE");
+        try (PreparedStatement ps = con.prepareStatement(sql.toString())) {
+            int p = 1;
+            for (int id : named) {
+                ps.setInt(p++, id);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    found.add(rs.getInt(1));
+                }
+            }
+        }
+        return found;
+    }
+
+    private static final class Ballot {
+        final String ballotId;
+        final String studentId;
+        final List<Integer> candidateIds;
+        final CompletableFuture<BallotOutcome> result = new CompletableFuture<>();
+
+        Ballot(String ballotId, String studentId, List<Integer> candidateIds) {
+            this.ballotId = ballotId;
+            this.studentId = studentId;
+            this.candidateIds = new ArrayList<>(candidateIds);
+        }
+    }
+}
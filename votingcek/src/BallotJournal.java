@@ -0,0 +1,337 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Local write-ahead journal for ballots the database can't take right now.
+ *
+ * BallotIngestor appends here when MySQL is unreachable or too slow, and the
+ * voter is told their vote was recorded. A background replayer drains the
+ * journal into MySQL once it answers again. Replay is idempotent because every
+ * ballot carries its session's ballot id, so a crash between a replay commit
+ * and the journal's bookkeeping just replays a few ballots that are then
+ * answered ACCEPTED without being counted twice.
+ *
+ * The file is memory-mapped and force()d after every append, so a ballot that
+ * was acknowledged survives the kiosk losing power.
+ *
+ * Layout: a header of MAGIC, VERSION and the replayed offset, then records of
+ * [payload length][CRC32 of payload][payload], the payload being
+ * ballot_id TAB student_id TAB candidate ids TAB cast time (epoch millis).
+ * A zero length or bad checksum marks the end, so a torn final record from a
+ * crash mid-append is ignored. A ballot the database refuses outright is
+ * written to ballots.journal.quarantine and skipped, as is one it answers
+ * without counting (ALREADY_VOTED, INVALID_CANDIDATE).
+ *
+ * Tunables (system properties): voting.journal.dir, voting.journal.sizeMb.
+ */
+public class BallotJournal {
+    private static final int MAGIC = 0x564A4E4C; // "VJNL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int REPLAYED_OFFSET_POS = 8;
+    private static final int REPLAY_BATCH = 64;
+    private static final long REPLAY_INTERVAL_MS = 2000;
+
+    private static BallotJournal instance;
+
+    private final File file;
+    private final File quarantineFile;
+    private final MappedByteBuffer map;
+    private int writeOffset;
+    private int replayedOffset;
+    private int depth;
+    private long replayFailures;
+    private final Thread replayer;
+
+    public static synchronized BallotJournal getInstance() {
+        if (instance == null) {
+            File dir = new File(System.getProperty("voting.journal.dir",
+                System.getProperty("user.home") + File.separator + ".college-voting"));
+            int sizeMb = Integer.getInteger("voting.journal.sizeMb", 16);
+            try {
+                instance = new BallotJournal(new File(dir, "ballots.journal"), sizeMb << 20);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open ballot journal in " + dir + ": " + e.getMessage(), e);
+            }
+        }
+        return instance;
+    }
+
+    public BallotJournal(File file, int capacity) throws IOException {
+        this.file = file;
+        this.quarantineFile = new File(file.getPath() + ".quarantine");
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, (int) raf.length()));
+        }
+
+        if (map.getInt(0) != MAGIC) {
+            map.putInt(0, MAGIC);
+            map.putInt(4, VERSION);
+            map.putInt(REPLAYED_OFFSET_POS, HEADER_SIZE);
+            map.force();
+        }
+        replayedOffset = map.getInt(REPLAYED_OFFSET_POS);
+        recover();
+
+        replayer = new Thread(this::replayLoop, "ballot-journal-replayer");
+        replayer.setDaemon(true);
+        replayer.start();
+    }
+
+    /**
+     * Finds the end of the journal and counts what still needs replaying.
+     */
+    private void recover() {
+        int pos = replayedOffset;
+        int count = 0;
+        while (true) {
+            String payload = readRecord(pos);
+            if (payload == null) {
+                break;
+            }
+            pos += 8 + payload.getBytes(StandardCharsets.UTF_8).length;
+            count++;
+        }
+        writeOffset = pos;
+        depth = count;
+        if (count > 0) {
+            System.err.println("Ballot journal " + file + " has " + count + " ballots to replay");
+        }
+    }
+
+    /**
+     * @return the payload at pos, or null at the end of the journal
+     */
+    private String readRecord(int pos) {
+        if (pos + 8 > map.capacity()) {
+            return null;
+        }
+        int length = map.getInt(pos);
+        if (length <= 0 || pos + 8 + length > map.capacity()) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        map.get(pos + 8, bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if ((int) crc.getValue() != map.getInt(pos + 4)) {
+            return null;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Durably records a ballot. Returns once it is on disk.
+     */
+    public synchronized void append(String ballotId, String studentId, List<Integer> candidateIds) throws IOException {
+        String payload = ballotId + '\t' + studentId + '\t' + BallotLedger.encode(candidateIds)
+            + '\t' + System.currentTimeMillis();
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        if (writeOffset + 8 + bytes.length + 4 > map.capacity()) {
+            throw new IOException("Ballot journal is full (" + depth + " ballots waiting for the database)");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        // Payload and checksum first, length last, so a torn write never looks like a record
+        map.put(writeOffset + 8, bytes);
+        map.putInt(writeOffset + 4, (int) crc.getValue());
+        map.putInt(writeOffset + 8 + bytes.length, 0);
+        map.force();
+        map.putInt(writeOffset, bytes.length);
+        map.force();
+        writeOffset += 8 + bytes.length;
+        depth++;
+        notifyAll();
+    }
+
+    /** Ballots waiting to be replayed into the database. */
+    public synchronized int getDepth() {
+        return depth;
+    }
+
+    private void replayLoop() {
+        while (true) {
+            try {
+                synchronized (this) {
+                    wait(depth == 0 ? 0 : REPLAY_INTERVAL_MS);
+                    if (depth == 0) {
+                        continue;
+                    }
+                }
+                while (replayOnce()) {
+                    // keep draining while the database keeps up
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replays up to REPLAY_BATCH ballots in one transaction. If the batch fails
+     * for a reason other than the database being away or busy, the ballots are
+     * replayed one at a time so only the bad one is set aside.
+     *
+     * @return true if something was replayed and more may be waiting
+     */
+    private boolean replayOnce() {
+        List<String> ballotIds = new ArrayList<>();
+        List<String> studentIds = new ArrayList<>();
+        List<List<Integer>> choices = new ArrayList<>();
+        List<Timestamp> castTimes = new ArrayList<>();
+        List<String> payloads = new ArrayList<>();
+        synchronized (this) {
+            int pos = replayedOffset;
+            while (ballotIds.size() < REPLAY_BATCH && pos < writeOffset) {
+                String payload = readRecord(pos);
+                if (payload == null) {
+                    break;
+                }
+                String[] parts = payload.split("\t", -1);
+                ballotIds.add(parts[0]);
+                studentIds.add(parts[1]);
+                List<Integer> ids = new ArrayList<>();
+                for (int id : BallotLedger.decode(parts[2])) {
+                    ids.add(id);
+                }
+                choices.add(ids);
+                castTimes.add(new Timestamp(Long.parseLong(parts[3])));
+                payloads.add(payload);
+                pos += 8 + payload.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        if (ballotIds.isEmpty()) {
+            return false;
+        }
+
+        try {
+            replay(ballotIds, studentIds, choices, castTimes, payloads);
+        } catch (SQLException e) {
+            if (!isTransient(e)) {
+                return isolate(ballotIds, studentIds, choices, castTimes, payloads);
+            }
+            waiting(e);
+            return false;
+        }
+        return advance(payloads);
+    }
+
+    /**
+     * Replays the ballots one by one after their batch failed, quarantining
+     * each one that fails on its own.
+     */
+    private boolean isolate(List<String> ballotIds, List<String> studentIds, List<List<Integer>> choices,
+                            List<Timestamp> castTimes, List<String> payloads) {
+        for (int i = 0; i < ballotIds.size(); i++) {
+            try {
+                replay(ballotIds.subList(i, i + 1), studentIds.subList(i, i + 1), choices.subList(i, i + 1),
+                    castTimes.subList(i, i + 1), payloads.subList(i, i + 1));
+            } catch (SQLException e) {
+                if (isTransient(e)) {
+                    waiting(e);
+                    return false;
+                }
+                quarantine(payloads.get(i), e.getMessage());
+            }
+            advance(payloads.subList(i, i + 1));
+        }
+        return getDepth() > 0;
+    }
+
+    /**
+     * Commits the ballots with their journaled cast times. Ballots the
+     * database answers but doesn't count (the student had already voted, or a
+     * candidate was deleted meanwhile) were still acknowledged to the voter,
+     * so they are quarantined for the officers rather than dropped.
+     */
+    private void replay(List<String> ballotIds, List<String> studentIds, List<List<Integer>> choices,
+                        List<Timestamp> castTimes, List<String> payloads) throws SQLException {
+        BallotOutcome[] outcomes;
+        try (Connection con = DBConnection.getBackgroundConnection("vote.replay")) {
+            // These were cast in sessions the election allowed; a close since then doesn't void them
+            outcomes = LockRetry.run(() -> BallotIngestor.writeBatch(con, ballotIds, studentIds, choices,
+                castTimes, false));
+            ResultsVersion.bump(con);
+            TallyEngine.catchUp(con);
+        }
+        ResultsVersion.nudge();
+
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] != BallotOutcome.ACCEPTED) {
+                quarantine(payloads.get(i), "not counted: " + outcomes[i]);
+            }
+        }
+    }
+
+    /**
+     * The database is away, busy or lost a lock fight: the same ballots will go through later.
+     */
+    private static boolean isTransient(SQLException e) {
+        return BallotIngestor.isConnectionFailure(e) || BallotIngestor.isBusy(e) || LockRetry.isRetryable(e);
+    }
+
+    private synchronized void waiting(SQLException e) {
+        if (replayFailures++ % 30 == 0) {
+            System.err.println("Ballot journal replay waiting for the database: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Keeps a ballot the database refuses for good (say, a constraint it can
+     * never satisfy, or a student who had already voted) in a side file for
+     * the election officers, so it doesn't hold up every ballot journaled
+     * after it.
+     */
+    private void quarantine(String payload, String reason) {
+        System.err.println("Journaled ballot could not be replayed and was set aside in " + quarantineFile
+            + ": " + payload.replace('\t', ' ') + " (" + reason + ")");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(quarantineFile, true), StandardCharsets.UTF_8)) {
+            out.write(payload + '\t' + String.valueOf(reason).replace('\n', ' ') + '\n');
+        } catch (IOException e) {
+            System.err.println("Could not write " + quarantineFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marks the given records (the next ones in the journal) as replayed.
+     *
+     * @return true if more are waiting
+     */
+    private synchronized boolean advance(List<String> payloads) {
+        for (String payload : payloads) {
+            replayedOffset += 8 + payload.getBytes(StandardCharsets.UTF_8).length;
+        }
+        depth -= payloads.size();
+        map.putInt(REPLAYED_OFFSET_POS, replayedOffset);
+        if (replayedOffset == writeOffset) {
+            // Fully drained: start over at the top so the file never fills up
+            for (int p = HEADER_SIZE; p < writeOffset; p++) {
+                map.put(p, (byte) 0);
+            }
+            replayedOffset = writeOffset = HEADER_SIZE;
+            map.putInt(REPLAYED_OFFSET_POS, replayedOffset);
+        }
+        map.force();
+        replayFailures = 0;
+        return depth > 0;
+    }
+}
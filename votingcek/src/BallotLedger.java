@@ -0,0 +1,144 @@
+import java.net.InetAddress;
+import java.sql.*;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Append-only record of every accepted ballot.
+ *
+ * The ledger is the source of truth for tallies (see TallyEngine); rows are
+ * only ever inserted, never updated or deleted by the application.
+ *
+ * Each row carries the ballot_uuid the kiosk generated when the voting
+ * session opened. It is unique, so a ballot retried after a lost commit
+ * acknowledgement is recognised (findRecorded) instead of counted twice.
+ */
+public class BallotLedger {
+    /** Identifies this kiosk in the ledger; override with -Dvoting.kiosk=... */
+    public static final String KIOSK_ID = System.getProperty("voting.kiosk", defaultKioskId());
+
+    private static volatile boolean schemaReady = false;
+
+    private BallotLedger() {
+    }
+
+    private static String defaultKioskId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "kiosk";
+        }
+    }
+
+    public static void ensureSchema(Connection con) throws SQLException {
+        if (schemaReady) {
+            return;
+        }
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS ballot ("
+                + "ballot_id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "student_id VARCHAR(20) NOT NULL, "
+                + "candidate_ids VARCHAR(255) NOT NULL, "
+                + "cast_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), "
+                + "kiosk_id VARCHAR(64), "
+                + "ballot_uuid CHAR(36) NULL, "
+                + "UNIQUE KEY uk_ballot_uuid (ballot_uuid), "
+                + "INDEX idx_ballot_cast_at (cast_at))");
+        }
+        addBallotUuidIfMissing(con);
+        schemaReady = true;
+    }
+
+    private static void addBallotUuidIfMissing(Connection con) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT 1 FROM information_schema.columns "
+                 + "WHERE table_schema = DATABASE() AND table_name = 'ballot' AND column_name = 'ballot_uuid'")) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        try (Statement st = con.createStatement()) {
+            // Ledgers from before ballot ids keep NULLs, which UNIQUE allows
+            st.executeUpdate("ALTER TABLE ballot ADD COLUMN ballot_uuid CHAR(36) NULL, "
+                + "ADD UNIQUE KEY uk_ballot_uuid (ballot_uuid)");
+        } catch (SQLException e) {
+            if (e.getErrorCode() != 1060) { // ER_DUP_FIELDNAME: another kiosk added it first
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Adds one ledger row per ballot (batched) inside the caller's transaction.
+     * A null cast time stamps the row with the server's current time.
+     */
+    public static void append(Connection con, List<String> ballotIds, List<String> studentIds,
+                              List<List<Integer>> candidateIds, List<Timestamp> castTimes,
+                              String kioskId) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO ballot(ballot_uuid, student_id, candidate_ids, kiosk_id, cast_at) "
+                + "VALUES (?, ?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP(3)))")) {
+            for (int i = 0; i < studentIds.size(); i++) {
+                ps.setString(1, ballotIds.get(i));
+                ps.setString(2, studentIds.get(i));
+                ps.setString(3, encode(candidateIds.get(i)));
+                ps.setString(4, kioskId);
+                ps.setTimestamp(5, castTimes.get(i));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Which of the given ballot ids are already in the ledger. A locking read,
+     * so inside a transaction it also sees a retry's first attempt that
+     * committed while this transaction waited on its row locks.
+     */
+    public static Set<String> findRecorded(Connection con, Collection<String> ballotIds) throws SQLException {
+        Set<String> found = new HashSet<>();
+        if (ballotIds.isEmpty()) {
+            return found;
+        }
+        StringBuilder sql = new StringBuilder("SELECT ballot_uuid FROM ballot WHERE ballot_uuid IN (");
+        for (int i = 0; i < ballotIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") LOCK IN SHARE MODE");
+        try (PreparedStatement ps = con.prepareStatement(sql.toString())) {
+            int p = 1;
+            for (String id : ballotIds) {
+                ps.setString(p++, id);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    found.add(rs.getString(1));
+                }
+            }
+        }
+        return found;
+    }
+
+    static String encode(List<Integer> candidateIds) {
+        StringBuilder sb = new StringBuilder();
+        for (int id : candidateIds) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+
+    static int[] decode(String candidateIds) {
+        if (candidateIds == null || candidateIds.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = candidateIds.split(",");
+        int[] ids = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ids[i] = Integer.parseInt(parts[i].trim());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * What happened to a submitted ballot. Failures that lost the ballot are
+ * reported as exceptions instead; these are the answers the database (or,
+ * while it is unreachable, the local journal) gave.
+ */
+public enum BallotOutcome {
+    ACCEPTED(0, "Your votes have been cast successfully!"),
+    ALREADY_VOTED(1, "This student has already voted. The ballot was not counted."),
+    ELECTION_CLOSED(2, "The election has been closed. The ballot was not counted."),
+    /** Written to the local BallotJournal while the database was unreachable; counted on replay. */
+    RECORDED_OFFLINE(3, "Your votes have been recorded and will be counted as soon as the server is reachable."),
+    /** The ballot names a candidate that was deleted after it was shown. */
+    INVALID_CANDIDATE(4, "A candidate on this ballot is no longer standing. The ballot was not counted.");
+
+    /** Value returned by the cast_ballot procedure. */
+    final int code;
+    private final String message;
+
+    BallotOutcome(int code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    static BallotOutcome fromCode(int code) {
+        for (BallotOutcome o : values()) {
+            if (o.code == code) {
+                return o;
+            }
+        }
+        throw new IllegalArgumentException("Unknown ballot outcome code: " + code);
+    }
+}
@@ -0,0 +1,152 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Commits a single ballot in one round trip through a stored procedure.
+ *
+ * The batched path in BallotIngestor needs one statement per step (election
+ * check, status flip, ledger row, one counter upsert per candidate, the total)
+ * plus the commit. When a ballot arrives on its own that is 5 + candidates
+ * round trips for one voter. cast_ballot does all of it,
+ * including START TRANSACTION and COMMIT, on the server and answers with a
+ * single row holding a BallotOutcome code. A ballot id that is already in
+ * the ledger answers ACCEPTED without counting anything again.
+ *
+ * The procedure is created by the app on first use. The version is part of
+ * its name, so a changed body gets a new name rather than racing other kiosks
+ * over DROP/CREATE. If it can't be installed (no CREATE ROUTINE privilege,
+ * or -Dvoting.ballot.procedure=false) callers fall back to the batched path.
+ */
+public class BallotProcedure {
+    static final String NAME = "cast_ballot_v3";
+
+    private static final String BODY =
+        "CREATE PROCEDURE " + NAME + "(IN p_ballot CHAR(36), IN p_student VARCHAR(20), "
+        + "IN p_candidates VARCHAR(255), IN p_kiosk VARCHAR(64), IN p_slot TINYINT)\n"
+        + "BEGIN\n"
+        + "  DECLARE v_active INT DEFAULT 0;\n"
+        + "  DECLARE v_rest VARCHAR(255) DEFAULT p_candidates;\n"
+        + "  DECLARE v_id INT;\n"
+        + "  DECLARE v_dup INT DEFAULT 0;\n"
+        + "  DECLARE EXIT HANDLER FOR SQLEXCEPTION BEGIN ROLLBACK; RESIGNAL; END;\n"
+        + "  START TRANSACTION;\n"
+        // Shared lock: stopping the election waits for ballots already past this check
+        + "  SELECT active INTO v_active FROM election_status WHERE id = 1 LOCK IN SHARE MODE;\n"
+        + "  IF v_active <> 1 THEN\n"
+        + "    ROLLBACK;\n"
+        // A retry of a ballot that committed before the election closed still counts as accepted
+        + "    SELECT IF(EXISTS(SELECT 1 FROM ballot WHERE ballot_uuid = p_ballot), "
+        + BallotOutcome.ACCEPTED.code + ", " + BallotOutcome.ELECTION_CLOSED.code + ") AS outcome;\n"
+        + "  ELSE\n"
+        + "    UPDATE student SET status = 'voted' WHERE student_id = p_student AND status <> 'voted';\n"
+        + "    IF ROW_COUNT() = 0 THEN\n"
+        // Locking read: sees an earlier attempt of this ballot that committed while we waited on the row
+        + "      SELECT COUNT(*) INTO v_dup FROM ballot WHERE ballot_uuid = p_ballot LOCK IN SHARE MODE;\n"
+        + "      ROLLBACK;\n"
+        + "      SELECT IF(v_dup > 0, " + BallotOutcome.ACCEPTED.code + ", "
+        + BallotOutcome.ALREADY_VOTED.code + ") AS outcome;\n"
+        + "    ELSE\n"
+        + "      INSERT INTO ballot(ballot_uuid, student_id, candidate_ids, kiosk_id) "
+        + "VALUES (p_ballot, p_student, p_candidates, p_kiosk);\n"
+        + "      WHILE v_rest <> '' DO\n"
+        + "        SET v_id = CAST(SUBSTRING_INDEX(v_rest, ',', 1) AS UNSIGNED);\n"
+        + "        INSERT INTO candidate_vote_shard(candidate_id, slot, votes) VALUES (v_id, p_slot, 1)\n"
+        + "          ON DUPLICATE KEY UPDATE votes = votes + 1;\n"
+        + "        SET v_rest = IF(LOCATE(',', v_rest) > 0, SUBSTRING(v_rest, LOCATE(',', v_rest) + 1), '');\n"
+        + "      END WHILE;\n"
+        + "      INSERT INTO total_vote_shard(slot, votes) VALUES (p_slot, 1)\n"
+        + "        ON DUPLICATE KEY UPDATE votes = votes + 1;\n"
+        + "      COMMIT;\n"
+        + "      SELECT " + BallotOutcome.ACCEPTED.code + " AS outcome;\n"
+        + "    END IF;\n"
+        + "  END IF;\n"
+        + "END";
+
+    private static final boolean ENABLED =
+        Boolean.parseBoolean(System.getProperty("voting.ballot.procedure", "true"));
+
+    // null until the first install attempt
+    private static volatile Boolean installed;
+
+    private BallotProcedure() {
+    }
+
+    /**
+     * Installs the procedure if needed. Only tries once per process.
+     *
+     * @return true if cast() can be used
+     */
+    public static boolean isAvailable(Connection con) {
+        Boolean known = installed;
+        if (known != null) {
+            return known;
+        }
+        synchronized (BallotProcedure.class) {
+            if (installed == null) {
+                installed = ENABLED && install(con);
+            }
+            return installed;
+        }
+    }
+
+    private static boolean install(Connection con) {
+        try {
+            TallyEngine.ensureSchema(con);
+            try (PreparedStatement ps = con.prepareStatement(
+                    "SELECT 1 FROM information_schema.routines "
+                    + "WHERE routine_schema = DATABASE() AND routine_name = ?")) {
+                ps.setString(1, NAME);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return true;
+                    }
+                }
+            }
+            try (Statement st = con.createStatement()) {
+                st.executeUpdate(BODY);
+            } catch (SQLException e) {
+                if (e.getErrorCode() != 1304) { // ER_SP_ALREADY_EXISTS: another kiosk won the race
+                    throw e;
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Ballot procedure unavailable, using batched commits: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Commits one ballot in a single round trip. The connection must be in
+     * autocommit mode; the procedure runs its own transaction.
+     */
+    public static BallotOutcome cast(Connection con, String ballotId, String studentId, List<Integer> candidateIds)
+            throws SQLException {
+        // The procedure upserts counters in list order; sort so every ballot locks candidates the same way
+        List<Integer> sorted = new ArrayList<>(candidateIds);
+        Collections.sort(sorted);
+        try (PreparedStatement ps = con.prepareStatement("CALL " + NAME + "(?, ?, ?, ?, ?)")) {
+            ps.setString(1, ballotId);
+            ps.setString(2, studentId);
+            ps.setString(3, BallotLedger.encode(sorted));
+            ps.setString(4, BallotLedger.KIOSK_ID);
+            ps.setInt(5, VoteCounters.pickSlot());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException(NAME + " returned no outcome");
+                }
+                return BallotOutcome.fromCode(rs.getInt("outcome"));
+            }
+        } catch (SQLException e) {
+            if (e.getErrorCode() == 1452) { // ER_NO_REFERENCED_ROW_2: a candidate was deleted; rolled back
+                return BallotOutcome.INVALID_CANDIDATE;
+            }
+            if (e.getErrorCode() == 1305) { // ER_SP_DOES_NOT_EXIST: dropped behind our back
+                installed = null;
+            }
+            throw e;
+        }
+    }
+}
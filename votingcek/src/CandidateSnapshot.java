@@ -0,0 +1,143 @@
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Immutable list of the candidates on the ballot, shared by every voting
+ * session in the process.
+ *
+ * Candidates don't change while an election runs, so the list is read once
+ * and every StudentVotingPage after that builds its cards straight from
+ * memory. The stores drop the snapshot when a candidate is added or deleted
+ * here, and ElectionState drops it when the election starts or stops,
+ * wherever that was done. Candidate changes made on another machine move the
+ * candidates version, which the ResultsVersion poller passes to confirm().
+ * Once a poller has been heard from, a snapshot it hasn't confirmed for
+ * MAX_AGE_MS (nobody is polling) is read again before use, like ElectionState.
+ * preload() fetches the next one in the background, so the first voter after
+ * a change doesn't wait either.
+ */
+public final class CandidateSnapshot {
+    private static final long MAX_AGE_MS = 2000;
+
+    private static final Object LOCK = new Object();
+    private static CandidateSnapshot current;
+    private static CompletableFuture<CandidateSnapshot> loading;
+    // Bumped by invalidate() so a load that raced it isn't published
+    private static long generation;
+    // Last candidates version the poller reported, -1 if it never has (in-memory store)
+    private static long version = -1;
+    private static long confirmedNanos;
+
+    private final int[] ids;
+    private final String[] names;
+
+    private CandidateSnapshot(List<Object[]> rows) {
+        ids = new int[rows.size()];
+        names = new String[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (Integer) rows.get(i)[0];
+            names[i] = (String) rows.get(i)[1];
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * The cached snapshot, or null if there is none yet or it may be out of
+     * date. Never touches the database.
+     */
+    public static CandidateSnapshot peek() {
+        synchronized (LOCK) {
+            return isFresh() ? current : null;
+        }
+    }
+
+    // Call holding LOCK
+    private static boolean isFresh() {
+        return version < 0 || System.nanoTime() - confirmedNanos <= MAX_AGE_MS * 1_000_000L;
+    }
+
+    /**
+     * The cached snapshot, loading it on the DB executor first if needed.
+     * Concurrent callers share one load; cancelling the returned future
+     * (say, the window closed) doesn't cancel it for the others.
+     */
+    public static CompletableFuture<CandidateSnapshot> get() {
+        synchronized (LOCK) {
+            if (current != null && isFresh()) {
+                return CompletableFuture.completedFuture(current);
+            }
+            if (loading != null) {
+                return loading.copy();
+            }
+            long loadGeneration = generation;
+            long started = System.nanoTime();
+            CompletableFuture<CandidateSnapshot> load = DBExecutor.submit(CandidateSnapshot::read);
+            loading = load;
+            load.whenComplete((snapshot, error) -> {
+                synchronized (LOCK) {
+                    if (loading == load) {
+                        loading = null;
+                    }
+                    if (error == null && generation == loadGeneration) {
+                        current = snapshot;
+                        // As current as a poll made when the read started
+                        confirmedNanos = started;
+                    }
+                }
+            });
+            return load.copy();
+        }
+    }
+
+    /**
+     * Starts loading the snapshot if there isn't one, so the next voter finds it ready.
+     */
+    public static void preload() {
+        get().exceptionally(e -> {
+            System.err.println("Could not preload candidates: " + DBExecutor.unwrap(e).getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Drops the snapshot. Call after changing the candidates or the election state.
+     */
+    public static void invalidate() {
+        synchronized (LOCK) {
+            generation++;
+            current = null;
+            loading = null;
+        }
+    }
+
+    /**
+     * The candidates version the database has now. Drops the snapshot if it
+     * moved, or if this is the first version heard (the snapshot may predate
+     * it); otherwise keeps the snapshot fresh.
+     */
+    static void confirm(long candidatesVersion) {
+        synchronized (LOCK) {
+            if (candidatesVersion != version) {
+                version = candidatesVersion;
+                invalidate();
+            }
+            confirmedNanos = System.nanoTime();
+        }
+    }
+
+    private static CandidateSnapshot read() throws SQLException {
+        return new CandidateSnapshot(VoteStore.getInstance().listCandidates());
+    }
+}
@@ -0,0 +1,339 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Iterator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small bounded JDBC connection pool used behind DBConnection.getConnection().
+ *
+ * Callers borrow a connection and close() it as before; close() hands the
+ * physical connection back to the pool instead of tearing down the socket.
+ * Statements made on a borrowed connection are timed by QueryMetrics under
+ * the name it was borrowed for.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final String user;
+    private final String pass;
+    private final int maxSize;
+    private final int minIdle;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long validateAfterMillis;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Scheduler.Task housekeeper;
+
+    // Counters read by the dashboards
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger physical = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder borrowNanos = new LongAdder();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    private volatile boolean shutdown = false;
+
+    public ConnectionPool(String url, String user, String pass, int maxSize, int minIdle,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis) {
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validateAfterMillis = 500;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Opening and closing connections can block, so this runs in the background
+        this.housekeeper = Scheduler.every("db-pool-housekeeping", Scheduler.Mode.BACKGROUND, 30, 30, TimeUnit.SECONDS,
+            this::housekeep);
+    }
+
+    /**
+     * Opens connections up to minIdle so the first clicks don't pay the handshake.
+     */
+    public void warmUp() {
+        while (!shutdown && physical.get() < minIdle && idle.size() < minIdle) {
+            try {
+                idle.offerLast(openPhysical());
+            } catch (SQLException e) {
+                System.err.println("Connection pool warm-up failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public Connection borrow() throws SQLException {
+        return borrow(QueryMetrics.UNTAGGED);
+    }
+
+    /**
+     * @param queryName what the connection is for, e.g. "results.load"; see QueryMetrics
+     */
+    public Connection borrow(String queryName) throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            timeouts.increment();
+            throw new SQLTransientConnectionException(
+                "Timed out after " + borrowTimeoutMillis + "ms waiting for a database connection ("
+                + active.get() + " in use)");
+        }
+
+        try {
+            PooledConnection pc = takeUsable();
+            active.incrementAndGet();
+            recordBorrow(System.nanoTime() - start);
+            return pc.newHandle(queryName);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeUsable() throws SQLException {
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (now - pc.createdAt >= maxLifetimeMillis) {
+                discard(pc);
+                continue;
+            }
+            // Validate on borrow, but skip the ping for connections returned moments ago
+            if (now - pc.lastUsedAt >= validateAfterMillis && !isValid(pc.raw)) {
+                discard(pc);
+                continue;
+            }
+            return pc;
+        }
+        return openPhysical();
+    }
+
+    private boolean isValid(Connection raw) {
+        try {
+            return raw.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection openPhysical() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, pass);
+        physical.incrementAndGet();
+        created.increment();
+        return new PooledConnection(raw);
+    }
+
+    private void release(PooledConnection pc) {
+        try {
+            boolean reusable = !shutdown
+                && System.currentTimeMillis() - pc.createdAt < maxLifetimeMillis
+                && !pc.raw.isClosed();
+            if (reusable) {
+                // Never hand out a connection with a half-finished transaction
+                if (!pc.raw.getAutoCommit()) {
+                    pc.raw.rollback();
+                    pc.raw.setAutoCommit(true);
+                }
+                if (pc.raw.isReadOnly()) {
+                    pc.raw.setReadOnly(false);
+                }
+                pc.lastUsedAt = System.currentTimeMillis();
+                idle.offerFirst(pc);
+            } else {
+                discard(pc);
+            }
+        } catch (SQLException e) {
+            discard(pc);
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pc) {
+        physical.decrementAndGet();
+        evicted.increment();
+        try {
+            pc.raw.close();
+        } catch (SQLException ignored) {
+            // already broken
+        }
+    }
+
+    private void recordBorrow(long nanos) {
+        borrows.increment();
+        borrowNanos.add(nanos);
+        long prev;
+        while (nanos > (prev = maxBorrowNanos.get())) {
+            if (maxBorrowNanos.compareAndSet(prev, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Evicts idle and expired connections, then tops the pool back up to minIdle.
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        int keep = minIdle;
+        Iterator<PooledConnection> it = idle.descendingIterator(); // oldest first
+        while (it.hasNext()) {
+            PooledConnection pc = it.next();
+            boolean expired = now - pc.createdAt >= maxLifetimeMillis;
+            boolean stale = now - pc.lastUsedAt >= idleTimeoutMillis && idle.size() > keep;
+            if ((expired || stale) && idle.remove(pc)) {
+                discard(pc);
+            }
+        }
+        warmUp();
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.cancel();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            discard(pc);
+        }
+    }
+
+    public Stats getStats() {
+        long n = borrows.sum();
+        return new Stats(active.get(), idle.size(), waiting.get(), physical.get(), maxSize,
+            n, n == 0 ? 0 : borrowNanos.sum() / n / 1000, maxBorrowNanos.get() / 1000,
+            timeouts.sum(), created.sum(), evicted.sum());
+    }
+
+    /**
+     * Point-in-time view of the pool counters.
+     */
+    public static final class Stats {
+        public final int active;
+        public final int idle;
+        public final int waiting;
+        public final int total;
+        public final int maxSize;
+        public final long borrows;
+        public final long avgBorrowMicros;
+        public final long maxBorrowMicros;
+        public final long timeouts;
+        public final long created;
+        public final long evicted;
+
+        Stats(int active, int idle, int waiting, int total, int maxSize, long borrows,
+              long avgBorrowMicros, long maxBorrowMicros, long timeouts, long created, long evicted) {
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.total = total;
+            this.maxSize = maxSize;
+            this.borrows = borrows;
+            this.avgBorrowMicros = avgBorrowMicros;
+            this.maxBorrowMicros = maxBorrowMicros;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.evicted = evicted;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool: %d active, %d idle, %d waiting (%d/%d open) | borrow avg %dus, max %dus | %d timeouts",
+                active, idle, waiting, total, maxSize, avgBorrowMicros, maxBorrowMicros, timeouts);
+        }
+    }
+
+    /**
+     * One physical connection. Each borrow gets its own proxy handle so a
+     * stale reference closed twice can't return the connection twice.
+     */
+    private final class PooledConnection {
+        final Connection raw;
+        final long createdAt;
+        volatile long lastUsedAt;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+
+        Connection newHandle(String queryName) {
+            return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new Handle(this, queryName));
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pc;
+        private final String queryName;
+        private boolean closed = false;
+
+        Handle(PooledConnection pc, String queryName) {
+            this.pc = pc;
+            this.queryName = queryName;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pc.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pc.raw + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Connection is closed");
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(pc.raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    return result instanceof Statement ? QueryMetrics.wrap((Statement) result, queryName) : result;
+            }
+        }
+    }
+}
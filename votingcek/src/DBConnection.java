@@ -1,12 +1,22 @@
 import java.sql.*;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 public class DBConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/college_voting";
-    private static final String USER = "root";
-    private static final String PASS = "ajay@2005";
-    
+    // Overridable so benchmarks and load tests can point at a scratch database
+    private static final String URL = System.getProperty("voting.db.url", "jdbc:mysql://localhost:3306/college_voting");
+    private static final String USER = System.getProperty("voting.db.user", "root");
+    private static final String PASS = System.getProperty("voting.db.password", "ajay@2005");
+
+    // Pool sizing - a handful of kiosks and dashboards share one process
+    private static final int POOL_MAX_SIZE = 10;
+    private static final int POOL_MIN_IDLE = 2;
+    private static final long BORROW_TIMEOUT_MS = 5_000;
+    private static final long IDLE_TIMEOUT_MS = 5 * 60_000;
+    private static final long MAX_LIFETIME_MS = 30 * 60_000;
+
     private static boolean driverLoaded = false;
+    private static ConnectionPool pool;
 
     static {
         try {
@@ -15,24 +25,65 @@ public class DBConnection {
         } catch (ClassNotFoundException e) {
             showError("MySQL JDBC Driver not found. Please include it in your library path!", e);
         }
+
+        if (driverLoaded) {
+            pool = new ConnectionPool(URL, USER, PASS, POOL_MAX_SIZE, POOL_MIN_IDLE,
+                BORROW_TIMEOUT_MS, IDLE_TIMEOUT_MS, MAX_LIFETIME_MS);
+            pool.warmUp();
+            Runtime.getRuntime().addShutdownHook(new Thread(pool::shutdown, "db-pool-shutdown"));
+            QueryMetrics.startDump();
+        }
     }
 
     public static Connection getConnection() throws SQLException {
+        return getConnection(QueryMetrics.UNTAGGED);
+    }
+
+    /**
+     * @param queryName what the connection is for, e.g. "results.load"; its statements are timed under that name
+     */
+    public static Connection getConnection(String queryName) throws SQLException {
         if (!driverLoaded) {
             throw new SQLException("MySQL JDBC Driver not loaded");
         }
 
         try {
-            return DriverManager.getConnection(URL, USER, PASS);
+            return pool.borrow(queryName);
         } catch (SQLException e) {
+            QueryMetrics.recordConnectionFailure();
             showError("Database connection failed! Please check if MySQL server is running.", e);
             throw e;
         }
     }
 
+    /**
+     * Like getConnection(), but without the error dialog. For background pollers
+     * that retry on their own and would otherwise pop a dialog every tick.
+     */
+    public static Connection getBackgroundConnection(String queryName) throws SQLException {
+        if (!driverLoaded) {
+            throw new SQLException("MySQL JDBC Driver not loaded");
+        }
+        try {
+            return pool.borrow(queryName);
+        } catch (SQLException e) {
+            QueryMetrics.recordConnectionFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Current pool counters (active/idle/waiting, borrow latency) for the dashboards.
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return pool != null ? pool.getStats() : null;
+    }
+
     private static void showError(String message, Exception e) {
         String fullMessage = message + "\nError: " + e.getMessage();
         System.err.println(fullMessage);
-        JOptionPane.showMessageDialog(null, fullMessage, "Database Error", JOptionPane.ERROR_MESSAGE);
+        // Connections are normally borrowed on DBExecutor threads; dialogs belong on the EDT
+        SwingUtilities.invokeLater(() ->
+            JOptionPane.showMessageDialog(null, fullMessage, "Database Error", JOptionPane.ERROR_MESSAGE));
     }
 }
@@ -0,0 +1,267 @@
+import java.awt.Component;
+import java.awt.Cursor;
+import java.awt.Window;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs database work off the Swing Event Dispatch Thread.
+ *
+ * Each screen creates a Scope bound to its window; queries started through
+ * the scope deliver their callbacks on the EDT and are cancelled when the
+ * window is disposed. Screens in the AppShell window, which is never
+ * disposed, cancel their scope in onHide() and reopen it in onShow(), so a
+ * logout or voting timeout never leaves a query pushing results into a
+ * screen that has been left.
+ */
+public final class DBExecutor {
+
+    @FunctionalInterface
+    public interface Query<T> {
+        T run(Connection con) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface Task<T> {
+        T call() throws Exception;
+    }
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private DBExecutor() {
+    }
+
+    /**
+     * Virtual threads when the runtime has them (JDK 21+), otherwise a pool of
+     * daemon platform threads. Concurrency is bounded by the connection pool
+     * either way, so an unbounded executor is fine here.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger n = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "db-worker-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Runs a task on the DB executor. Cancelling the returned future interrupts the worker.
+     */
+    public static <T> CompletableFuture<T> submit(Task<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running = EXECUTOR.submit(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Borrows a pooled connection, runs the query with it and closes it again.
+     */
+    public static <T> CompletableFuture<T> query(Query<T> query) {
+        return submit(() -> {
+            try (Connection con = DBConnection.getConnection()) {
+                return query.run(con);
+            }
+        });
+    }
+
+    /**
+     * Delivers the outcome of a future on the EDT. Cancelled futures are dropped silently.
+     */
+    public static <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((value, error) -> SwingUtilities.invokeLater(() -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            if (error == null) {
+                onSuccess.accept(value);
+            } else if (onError != null) {
+                onError.accept(unwrap(error));
+            }
+        }));
+    }
+
+    public static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    public static Scope scopeFor(Window window) {
+        return new Scope(window);
+    }
+
+    /**
+     * Tracks the queries started by one window.
+     */
+    public static final class Scope {
+        private final Window window;
+        private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+        private int busyCount = 0; // EDT only
+        private volatile boolean closed = false;
+        // Moved by cancelAll(), so work started before a close stays dropped after reopen()
+        private volatile int generation = 0;
+
+        private Scope(Window window) {
+            this.window = window;
+            window.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    cancelAll();
+                }
+            });
+        }
+
+        /**
+         * Runs a query in the background. The given components are disabled and the
+         * window shows a wait cursor until the query finishes; callbacks run on the EDT.
+         */
+        public <T> CompletableFuture<T> run(Query<T> query, Consumer<T> onSuccess,
+                                            Consumer<Throwable> onError, Component... busy) {
+            return watch(DBExecutor.query(query), onSuccess, onError, busy);
+        }
+
+        /**
+         * Like run(), for background work that manages its own connections.
+         */
+        public <T> CompletableFuture<T> submit(Task<T> task, Consumer<T> onSuccess,
+                                               Consumer<Throwable> onError, Component... busy) {
+            return watch(DBExecutor.submit(task), onSuccess, onError, busy);
+        }
+
+        /**
+         * Like submit(), for work that takes hold of something (a voter's lease,
+         * say) that has to be given back if the screen is left before the result
+         * arrives. The task itself isn't cancelled with the scope; instead its
+         * result goes to onDropped rather than onSuccess, on the EDT.
+         */
+        public <T> CompletableFuture<T> acquire(Task<T> task, Consumer<T> onSuccess, Consumer<T> onDropped,
+                                                Consumer<Throwable> onError, Component... busy) {
+            CompletableFuture<T> result = DBExecutor.submit(task);
+            track(result, result.copy(), onSuccess, onDropped, onError, busy);
+            return result;
+        }
+
+        /**
+         * Attaches this window's busy state, EDT callbacks and cancellation to a
+         * future produced elsewhere (e.g. a queued ballot).
+         */
+        public <T> CompletableFuture<T> watch(CompletableFuture<T> future, Consumer<T> onSuccess,
+                                              Consumer<Throwable> onError, Component... busy) {
+            track(future, future, onSuccess, null, onError, busy);
+            return future;
+        }
+
+        /**
+         * Delivers source's outcome on the EDT unless the scope was closed since;
+         * handle is what a close cancels.
+         */
+        private <T> void track(CompletableFuture<T> source, CompletableFuture<T> handle, Consumer<T> onSuccess,
+                               Consumer<T> onDropped, Consumer<Throwable> onError, Component... busy) {
+            int started = generation;
+            boolean open = !closed;
+            if (open) {
+                inFlight.add(handle);
+                setBusy(true, busy);
+            } else {
+                handle.cancel(true);
+            }
+            source.whenComplete((value, error) -> {
+                inFlight.remove(handle);
+                SwingUtilities.invokeLater(() -> {
+                    // Always restore the controls, even for a cancelled future, before the callback runs
+                    if (open) {
+                        setBusy(false, busy);
+                    }
+                    if (closed || started != generation || handle.isCancelled()) {
+                        if (error == null && onDropped != null) {
+                            onDropped.accept(value);
+                        }
+                        return;
+                    }
+                    if (error == null) {
+                        onSuccess.accept(value);
+                    } else if (onError != null) {
+                        onError.accept(unwrap(error));
+                    }
+                });
+            });
+        }
+
+        /**
+         * Only work that disables controls shows the wait cursor; background
+         * watchers that pass no components stay invisible.
+         */
+        private void setBusy(boolean busy, Component... components) {
+            if (components.length == 0) {
+                return;
+            }
+            Runnable update = () -> {
+                for (Component c : components) {
+                    c.setEnabled(!busy);
+                }
+                busyCount += busy ? 1 : -1;
+                window.setCursor(busyCount > 0
+                    ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR)
+                    : Cursor.getDefaultCursor());
+            };
+            if (SwingUtilities.isEventDispatchThread()) {
+                update.run();
+            } else {
+                SwingUtilities.invokeLater(update);
+            }
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Cancels everything still running for this window and drops any
+         * callback still on its way. Called automatically on dispose.
+         */
+        public void cancelAll() {
+            closed = true;
+            generation++;
+            for (CompletableFuture<?> f : inFlight) {
+                f.cancel(true);
+            }
+            inFlight.clear();
+        }
+
+        /**
+         * Takes new work again after cancelAll(); for screens that come back, in onShow().
+         */
+        public void reopen() {
+            closed = false;
+        }
+    }
+}
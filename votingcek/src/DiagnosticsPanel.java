@@ -0,0 +1,91 @@
+import java.awt.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * Super Admin "Diagnostics" tab: per-query rates and latency percentiles from
+ * QueryMetrics, plus the connection pool, lock retry and offline journal
+ * counters, and the tasks live on the Scheduler. Everything it shows is
+ * already in memory, so it refreshes on the EDT without touching the
+ * database, and only while it is on screen.
+ */
+public class DiagnosticsPanel extends JPanel {
+    private static final int REFRESH_MS = 2000;
+    private static final String[] COLUMNS = { "Query", "Rate /s", "Count", "Errors", "Mean ms", "p50 ms", "p99 ms", "p999 ms", "Max ms" };
+
+    private final DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final JLabel poolLabel = new JLabel();
+    private final JLabel countersLabel = new JLabel();
+    private final JLabel scheduledLabel = new JLabel();
+    private Scheduler.Task refresher;
+    private final Map<String, Long> lastCounts = new HashMap<>();
+    private long lastRefreshNanos;
+
+    public DiagnosticsPanel() {
+        super(new BorderLayout(5, 5));
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JPanel summary = new JPanel(new GridLayout(0, 1, 2, 2));
+        summary.add(poolLabel);
+        summary.add(countersLabel);
+        summary.add(scheduledLabel);
+        add(summary, BorderLayout.NORTH);
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refresher = Scheduler.every("diagnostics-refresh", Scheduler.Mode.EDT, 0, REFRESH_MS, TimeUnit.MILLISECONDS, this::refresh);
+    }
+
+    @Override
+    public void removeNotify() {
+        refresher.cancel();
+        super.removeNotify();
+    }
+
+    private void refresh() {
+        if (!isShowing()) {
+            return;
+        }
+        long now = System.nanoTime();
+        double seconds = lastRefreshNanos == 0 ? 0 : (now - lastRefreshNanos) / 1e9;
+        lastRefreshNanos = now;
+
+        List<QueryMetrics.Snapshot> snapshots = QueryMetrics.snapshot();
+        model.setRowCount(0);
+        for (QueryMetrics.Snapshot s : snapshots) {
+            Long previous = lastCounts.put(s.name, s.count);
+            double rate = seconds > 0 && previous != null ? (s.count - previous) / seconds : 0;
+            model.addRow(new Object[] { s.name, String.format("%.1f", rate), s.count, s.errors,
+                String.format("%.2f", s.meanMillis), String.format("%.2f", s.p50Millis),
+                String.format("%.2f", s.p99Millis), String.format("%.2f", s.p999Millis),
+                String.format("%.2f", s.maxMillis) });
+        }
+
+        ConnectionPool.Stats pool = DBConnection.getPoolStats();
+        poolLabel.setText(pool != null ? pool.toString() : "Pool: not started");
+        String journal;
+        try {
+            journal = String.valueOf(VoteStore.getInstance().getOfflineBallotCount());
+        } catch (IllegalStateException e) {
+            journal = "unavailable";
+        }
+        countersLabel.setText(String.format("Lock retries: %d | lock aborts: %d | connection failures: %d | offline ballots: %s",
+            LockRetry.getRetries(), LockRetry.getAborts(), QueryMetrics.getConnectionFailures(), journal));
+        scheduledLabel.setText("Scheduled tasks: " + Scheduler.getLiveTaskCount() + " " + Scheduler.getLiveTasks());
+    }
+}
@@ -0,0 +1,235 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Latency of the election's hot paths, at several roster sizes, written to
+ * JSON so runs can be compared across commits:
+ *
+ *   castBallot    claim a voter and commit their ballot (StudentVotingPage.castVotes)
+ *   loadResults   results query plus the list model update (AdminDashboard.loadResults)
+ *   importRoster  a roster of the full size (SuperAdminDashboard.bulkAddStudents)
+ *   loadGrid      row count, first page, the next page by key and a page deep in the grid
+ *                 (SuperAdminDashboard.loadTable), sized by the rows in the student table
+ *
+ * Runs against the in-memory store by default:
+ *   java -cp bin:lib/* ElectionBenchmark [sizes] [out.json]
+ * or against a scratch MySQL database, which must exist and be empty:
+ *   java -Dvoting.store=jdbc -Dvoting.db.url=jdbc:mysql://localhost:3306/voting_bench \
+ *        -cp bin:lib/* ElectionBenchmark 1000,10000,100000 bench.json
+ *
+ * Tunables (system properties): bench.warmup, bench.iterations, bench.importRuns.
+ */
+public class ElectionBenchmark {
+    private static final int ADMINS = 5;
+    private static final int CANDIDATES = 8;
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 50);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 200);
+    private static final int IMPORT_RUNS = Integer.getInteger("bench.importRuns", 5);
+
+    private final String kind;
+    private final List<String> results = new ArrayList<>();
+
+    private ElectionBenchmark(String kind) {
+        this.kind = kind;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = (args.length > 0 ? args[0] : "1000,10000,100000").split(",");
+        String out = args.length > 1 ? args[1] : "election-benchmark.json";
+        String kind = System.getProperty("voting.store", "memory");
+
+        ElectionBenchmark bench = new ElectionBenchmark(kind);
+        if (kind.equals("jdbc")) {
+            prepareScratchDatabase();
+        }
+
+        System.out.printf("%-13s %8s %8s %10s %10s %10s %10s%n", "benchmark", "size", "ops", "mean ms", "p50 ms", "p99 ms", "max ms");
+        for (String size : sizes) {
+            bench.runAll(Integer.parseInt(size.trim()));
+        }
+        bench.write(out);
+        System.out.println("Results written to " + out);
+        System.exit(0);
+    }
+
+    /**
+     * Checks that voting.db.url names a scratch database and creates the base
+     * tables a real install already has. Also used by VoterLoadTest.
+     */
+    static void prepareScratchDatabase() throws SQLException {
+        requireScratchDatabase();
+        try (Connection con = DBConnection.getConnection();
+             Statement st = con.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS admin (admin_id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "username VARCHAR(50) NOT NULL UNIQUE, password VARCHAR(100))");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS student (student_id VARCHAR(20) PRIMARY KEY, "
+                + "admin_id INT NULL, status ENUM('not_voted','voted') NOT NULL DEFAULT 'not_voted')");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS candidate (candidate_id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "name VARCHAR(100), position VARCHAR(100), votes INT NOT NULL DEFAULT 0)");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS super_admin (super_id INT PRIMARY KEY, "
+                + "total_votes INT NOT NULL DEFAULT 0)");
+        }
+    }
+
+    /**
+     * Refuses to run unless voting.db.url names some database other than the
+     * election one. Also used by VoteCounterBenchmark.
+     */
+    static void requireScratchDatabase() {
+        String url = System.getProperty("voting.db.url", "");
+        if (url.isEmpty() || url.contains("college_voting")) {
+            throw new IllegalArgumentException("Set -Dvoting.db.url to an empty scratch database, never the election database");
+        }
+    }
+
+    private VoteStore newStore() {
+        // The memory store starts empty for every size; the scratch database is shared, so ids are prefixed
+        return kind.equals("jdbc") ? new JdbcVoteStore() : new InMemoryVoteStore();
+    }
+
+    private void runAll(int size) throws Exception {
+        VoteStore store = newStore();
+        String prefix = "b" + size + "-";
+        seed(store, prefix, size);
+
+        store.setElectionActive(true);
+        List<Integer> candidates = new ArrayList<>();
+        for (Object[] c : store.listCandidates()) {
+            if (((String) c[1]).startsWith(prefix)) {
+                candidates.add((Integer) c[0]);
+            }
+        }
+        int casts = Math.min(size, WARMUP + ITERATIONS);
+        int warmCasts = Math.min(WARMUP, casts / 4);
+        int[] next = { 0 };
+        record("castBallot", size, measure(casts - warmCasts, warmCasts, () -> {
+            int n = next[0]++;
+            String studentId = prefix + n;
+            VoterClaim claim = store.claimVoter(studentId);
+            if (!claim.isGranted()) {
+                throw new IllegalStateException(claim.getRefusal());
+            }
+            List<Integer> ballot = Arrays.asList(candidates.get(n % CANDIDATES), candidates.get((n + 3) % CANDIDATES));
+            BallotOutcome outcome = store.castBallot(prefix + "ballot-" + n, studentId, ballot).get();
+            if (outcome != BallotOutcome.ACCEPTED) {
+                throw new IllegalStateException(studentId + ": " + outcome);
+            }
+        }));
+        store.setElectionActive(false);
+
+        ResultsListModel model = new ResultsListModel();
+        record("loadResults", size, measure(ITERATIONS, WARMUP, () -> {
+            ElectionResults results = store.loadResults();
+            model.update(results.rows, results.totalVoters);
+        }));
+
+        // Before the imports below grow the roster; the scratch database also still holds
+        // earlier sizes' students, so the grid is recorded under the rows it actually pages
+        StudentFilter all = StudentFilter.NONE;
+        record("loadGrid", store.countStudents(all), measure(ITERATIONS, WARMUP, () -> {
+            int rows = store.countStudents(all);
+            List<Object[]> first = store.fetchStudentPage(all, 0, true, 0, PagedStudentTableModel.PAGE_SIZE, null);
+            Object[] last = first.get(first.size() - 1);
+            store.fetchStudentPage(all, 0, true, 1, PagedStudentTableModel.PAGE_SIZE, new Object[] { last[3], last[0] });
+            store.fetchStudentPage(all, 1, false, rows / 2 / PagedStudentTableModel.PAGE_SIZE,
+                PagedStudentTableModel.PAGE_SIZE, null);
+        }));
+
+        // Every run imports new students, so each one does the full insert work
+        List<String> rosters = new ArrayList<>();
+        for (int i = 0; i <= IMPORT_RUNS; i++) {
+            rosters.add(roster(prefix + "imp" + i + "-", size));
+        }
+        int[] run = { 0 };
+        record("importRoster", size, measure(IMPORT_RUNS, 1, () ->
+            store.importStudents(new StringReader(rosters.get(run[0]++)), null)));
+    }
+
+    private static void seed(VoteStore store, String prefix, int size) throws Exception {
+        store.ensureElectionStatus();
+        for (int i = 0; i < ADMINS; i++) {
+            store.addAdmin(prefix + "admin" + i, "pw");
+        }
+        StringBuilder roster = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            roster.append(prefix).append(i).append(',').append(prefix).append("admin").append(i % ADMINS).append('\n');
+        }
+        store.importStudents(new StringReader(roster.toString()), null);
+        for (int i = 0; i < CANDIDATES; i++) {
+            store.addCandidate(prefix + "candidate" + i, "position" + i % 3);
+        }
+    }
+
+    private static String roster(String prefix, int size) {
+        StringBuilder roster = new StringBuilder(size * 12);
+        for (int i = 0; i < size; i++) {
+            roster.append(prefix).append(i).append('\n');
+        }
+        return roster.toString();
+    }
+
+    @FunctionalInterface
+    private interface Op {
+        void run() throws Exception;
+    }
+
+    private static long[] measure(int iterations, int warmup, Op op) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            op.run();
+        }
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            op.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    private void record(String name, int size, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1e6;
+        double p50 = percentile(sorted, 0.50) / 1e6;
+        double p99 = percentile(sorted, 0.99) / 1e6;
+        double max = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6;
+        System.out.printf("%-13s %8d %8d %10.3f %10.3f %10.3f %10.3f%n", name, size, sorted.length, mean, p50, p99, max);
+        results.add(String.format(Locale.ROOT,
+            "    {\"benchmark\": \"%s\", \"size\": %d, \"ops\": %d, \"meanMs\": %.4f, \"p50Ms\": %.4f, "
+            + "\"p99Ms\": %.4f, \"maxMs\": %.4f}", name, size, sorted.length, mean, p50, p99, max));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private void write(String path) throws IOException {
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8))) {
+            w.println("{");
+            w.println("  \"store\": \"" + kind + "\",");
+            w.println("  \"timestamp\": \"" + Instant.now() + "\",");
+            w.println("  \"java\": \"" + System.getProperty("java.version") + "\",");
+            w.println("  \"warmup\": " + WARMUP + ", \"iterations\": " + ITERATIONS + ",");
+            w.println("  \"results\": [");
+            w.println(String.join(",\n", results));
+            w.println("  ]");
+            w.println("}");
+        }
+    }
+}
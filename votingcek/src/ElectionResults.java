@@ -0,0 +1,12 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the results view shows: whether voting is still open and, once it has
+ * closed, every candidate's votes in display order (most votes first).
+ */
+public class ElectionResults {
+    boolean active;
+    int totalVoters;
+    final List<ResultsListModel.Row> rows = new ArrayList<>();
+}
@@ -0,0 +1,113 @@
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.swing.SwingUtilities;
+
+/**
+ * In-memory copy of election_status.active, so results refreshes and voter
+ * claims don't each ask the database whether the election is running.
+ *
+ * Starting or stopping the election bumps ResultsVersion, so the version
+ * poller re-reads the flag only when the version has moved and otherwise
+ * just confirms the cached value is still good. A store that changes the
+ * state calls update() right after committing, so this process sees its own
+ * change at once. peek() returns null once the value hasn't been confirmed
+ * for MAX_AGE_MS (nobody is polling), and callers fall back to read().
+ *
+ * Listeners hear about every change on the EDT, whichever machine made it.
+ */
+public final class ElectionState {
+    private static final long MAX_AGE_MS = 2000;
+
+    /**
+     * Told on the EDT when the election starts or stops.
+     */
+    public interface Listener {
+        void electionStateChanged(boolean active);
+    }
+
+    private static final Object LOCK = new Object();
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static Boolean active;
+    private static long updatedNanos;
+    private static long confirmedNanos;
+
+    private ElectionState() {
+    }
+
+    /**
+     * The cached state if it is recent enough to trust, otherwise null. Never touches the database.
+     */
+    public static Boolean peek() {
+        synchronized (LOCK) {
+            if (active == null || System.nanoTime() - confirmedNanos > MAX_AGE_MS * 1_000_000L) {
+                return null;
+            }
+            return active;
+        }
+    }
+
+    /**
+     * Reads the flag from election_status and caches it. A missing row counts as not active.
+     */
+    public static boolean read(Connection con) throws SQLException {
+        long started = System.nanoTime();
+        boolean current;
+        try (PreparedStatement ps = con.prepareStatement("SELECT active FROM election_status WHERE id = 1");
+             ResultSet rs = ps.executeQuery()) {
+            current = rs.next() && rs.getInt("active") == 1;
+        }
+        record(current, started);
+        return current;
+    }
+
+    /**
+     * Records a state this process just committed (or otherwise knows to be current).
+     */
+    public static void update(boolean current) {
+        record(current, System.nanoTime());
+    }
+
+    /**
+     * Nothing has changed since the last check; keeps the cached value fresh.
+     */
+    static void confirm() {
+        synchronized (LOCK) {
+            if (active != null) {
+                confirmedNanos = System.nanoTime();
+            }
+        }
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static void record(boolean current, long observedNanos) {
+        boolean changed;
+        synchronized (LOCK) {
+            // A slow read that started before a newer update must not overwrite it
+            if (active != null && observedNanos - updatedNanos < 0) {
+                return;
+            }
+            changed = active == null || active != current;
+            active = current;
+            updatedNanos = observedNanos;
+            confirmedNanos = System.nanoTime();
+        }
+        if (!changed) {
+            return;
+        }
+        // A new election may come with different candidates
+        CandidateSnapshot.invalidate();
+        SwingUtilities.invokeLater(() -> {
+            for (Listener listener : listeners) {
+                listener.electionStateChanged(current);
+            }
+        });
+    }
+}
@@ -0,0 +1,467 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A VoteStore that lives entirely in this process: for demos, UI work without
+ * MySQL, and load tests that want to measure the app rather than the database.
+ * Nothing survives a restart.
+ *
+ * It keeps the same guarantees as the MySQL store: a student votes at most
+ * once, a ballot id is counted at most once, and closing the election waits
+ * for ballots already being counted (the election lock plays the part of the
+ * shared lock on election_status). Each student record is its own monitor, so
+ * ballots for different students never contend; vote counters are LongAdders.
+ */
+public class InMemoryVoteStore implements VoteStore {
+    // Students sorted by id, so prefix searches and the default grid order are range scans
+    private final ConcurrentSkipListMap<String, Student> students = new ConcurrentSkipListMap<>();
+    private final Map<String, Admin> adminsByName = new ConcurrentHashMap<>();
+    private final Map<Integer, Admin> adminsById = new ConcurrentHashMap<>();
+    private final Map<Integer, Candidate> candidates = new ConcurrentHashMap<>();
+    private final Set<String> countedBallots = ConcurrentHashMap.newKeySet();
+    private final LongAdder totalVotes = new LongAdder();
+    private final AtomicInteger adminSeq = new AtomicInteger();
+    private final AtomicInteger candidateSeq = new AtomicInteger();
+
+    // Ballots hold the read lock while they count; starting or ending the election takes the write lock
+    private final ReadWriteLock electionLock = new ReentrantReadWriteLock();
+    private volatile boolean electionActive = false;
+
+    // Bumped lock-free by every ballot; the monitor is only taken when someone is waiting
+    private final AtomicLong resultsVersion = new AtomicLong();
+    private final Object versionMonitor = new Object();
+    private final AtomicInteger versionWaiters = new AtomicInteger();
+
+    private static final class Admin {
+        final int id;
+        final String username;
+        final String password;
+
+        Admin(int id, String username, String password) {
+            this.id = id;
+            this.username = username;
+            this.password = password;
+        }
+    }
+
+    /** Guarded by its own monitor. */
+    private static final class Student {
+        final String id;
+        final Integer adminId;
+        String status;
+        String claimedBy;
+        long claimExpires;
+
+        Student(String id, Integer adminId, String status) {
+            this.id = id;
+            this.adminId = adminId;
+            this.status = status;
+        }
+    }
+
+    private static final class Candidate {
+        final int id;
+        final String name;
+        final String position;
+        final LongAdder votes = new LongAdder();
+
+        Candidate(int id, String name, String position) {
+            this.id = id;
+            this.name = name;
+            this.position = position;
+        }
+    }
+
+    // Admins
+
+    @Override
+    public String findAdminPassword(String username) {
+        Admin admin = adminsByName.get(username);
+        return admin == null ? null : admin.password;
+    }
+
+    @Override
+    public synchronized void addAdmin(String username, String password) throws SQLException {
+        if (adminsByName.containsKey(username)) {
+            throw new SQLIntegrityConstraintViolationException("Duplicate entry '" + username + "' for key 'username'");
+        }
+        Admin admin = new Admin(adminSeq.incrementAndGet(), username, password);
+        adminsById.put(admin.id, admin);
+        adminsByName.put(username, admin);
+    }
+
+    @Override
+    public List<String> listAdminUsernames() {
+        List<String> names = new ArrayList<>(adminsByName.keySet());
+        names.sort(null);
+        return names;
+    }
+
+    @Override
+    public List<Object[]> listAdmins() {
+        List<Admin> admins = new ArrayList<>(adminsById.values());
+        admins.sort(Comparator.comparingInt(a -> a.id));
+        List<Object[]> rows = new ArrayList<>();
+        for (Admin a : admins) {
+            rows.add(new Object[] { a.id, a.username });
+        }
+        return rows;
+    }
+
+    // Students
+
+    @Override
+    public String addStudent(String studentId, String adminUsername) {
+        Admin admin = adminsByName.get(adminUsername);
+        if (students.containsKey(studentId)) {
+            return "Student ID already exists!";
+        }
+        if (admin == null) {
+            return "Selected admin not found!";
+        }
+        if (students.putIfAbsent(studentId, new Student(studentId, admin.id, "not_voted")) != null) {
+            return "Student ID already exists!";
+        }
+        return null;
+    }
+
+    @Override
+    public void addStudent(String studentId, int adminId) throws SQLException {
+        if (students.putIfAbsent(studentId, new Student(studentId, adminId, "not_voted")) != null) {
+            throw new SQLIntegrityConstraintViolationException("Duplicate entry '" + studentId + "' for key 'PRIMARY'");
+        }
+    }
+
+    @Override
+    public boolean studentExists(String studentId) {
+        return students.containsKey(studentId);
+    }
+
+    @Override
+    public List<Object[]> listStudents() {
+        List<Object[]> rows = new ArrayList<>();
+        for (Student s : students.values()) {
+            rows.add(studentRow(s));
+        }
+        return rows;
+    }
+
+    @Override
+    public List<Object[]> searchStudents(String idPrefix, int limit) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Student s : students.tailMap(idPrefix).values()) {
+            if (rows.size() >= limit || !s.id.startsWith(idPrefix)) {
+                break;
+            }
+            rows.add(studentRow(s));
+        }
+        return rows;
+    }
+
+    private static Object[] studentRow(Student s) {
+        synchronized (s) {
+            return new Object[] { s.id, s.status, s.adminId == null ? 0 : s.adminId };
+        }
+    }
+
+    @Override
+    public int countStudents(StudentFilter filter) {
+        int count = 0;
+        for (Student s : students.values()) {
+            if (matches(filter, s)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sorts a filtered snapshot and cuts the page out of it by offset; afterKey
+     * is not needed when the whole roster is already in memory.
+     */
+    @Override
+    public List<Object[]> fetchStudentPage(StudentFilter filter, int sortColumn, boolean ascending,
+                                           int page, int pageSize, Object[] afterKey) {
+        List<Object[]> matching = new ArrayList<>();
+        for (Student s : students.values()) {
+            if (matches(filter, s)) {
+                Object[] row;
+                synchronized (s) {
+                    Comparable<?> key = sortColumn == 0 ? s.id
+                        : sortColumn == 1 ? (Integer) ("voted".equals(s.status) ? 2 : 1)
+                        : (Integer) (s.adminId == null ? 0 : s.adminId);
+                    row = new Object[] { s.id, s.status, s.adminId == null ? 0 : s.adminId, key };
+                }
+                matching.add(row);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        Comparator<Object[]> order = Comparator.comparing(r -> (Comparable<Object>) r[3]);
+        order = order.thenComparing(r -> (String) r[0]);
+        matching.sort(ascending ? order : order.reversed());
+
+        int from = Math.min(matching.size(), page * pageSize);
+        int to = Math.min(matching.size(), from + pageSize);
+        return new ArrayList<>(matching.subList(from, to));
+    }
+
+    private boolean matches(StudentFilter filter, Student s) {
+        Admin admin = s.adminId == null ? null : adminsById.get(s.adminId);
+        String status;
+        synchronized (s) {
+            status = s.status;
+        }
+        return filter.matches(s.id, status, admin == null ? null : admin.username);
+    }
+
+    @Override
+    public StudentImporter.Result importStudents(Reader in, StudentImporter.ProgressListener listener)
+            throws IOException, SQLException {
+        return new StudentImporter(new StudentImporter.Target() {
+            @Override
+            public Map<String, Integer> loadAdmins() {
+                Map<String, Integer> ids = new HashMap<>();
+                for (Admin a : adminsByName.values()) {
+                    ids.put(a.username, a.id);
+                }
+                return ids;
+            }
+
+            @Override
+            public int insertNew(List<String[]> rows) {
+                int inserted = 0;
+                for (String[] row : rows) {
+                    Integer adminId = row[1] == null ? null : Integer.valueOf(row[1]);
+                    if (students.putIfAbsent(row[0], new Student(row[0], adminId, row[2])) == null) {
+                        inserted++;
+                    }
+                }
+                return inserted;
+            }
+        }).importFrom(in, listener);
+    }
+
+    // Voting sessions
+
+    @Override
+    public VoterClaim claimVoter(String studentId) {
+        if (!electionActive) {
+            return VoterClaim.refused(studentId, "Election is not active. Please ask Super Admin to start the election.");
+        }
+        Student s = students.get(studentId);
+        if (s == null) {
+            return VoterClaim.refused(studentId, "Student ID not found: " + studentId);
+        }
+        long now = System.currentTimeMillis();
+        synchronized (s) {
+            if ("voted".equalsIgnoreCase(s.status)) {
+                return VoterClaim.refused(studentId, "Student has already voted.");
+            }
+            if (s.claimedBy != null && s.claimExpires >= now) {
+                String kiosk = s.claimedBy.contains("/") ? s.claimedBy.substring(0, s.claimedBy.indexOf('/')) : s.claimedBy;
+                return VoterClaim.refused(studentId, "Student is already voting at " + kiosk + ". Try again in "
+                    + (s.claimExpires - now) / 1000 + "s if that session was abandoned.");
+            }
+            s.claimedBy = VoterClaim.newOwner();
+            s.claimExpires = now + VoterClaim.LEASE_SECONDS * 1000L;
+            return VoterClaim.granted(studentId, s.claimedBy);
+        }
+    }
+
+    @Override
+    public void releaseClaim(VoterClaim claim) {
+        Student s = students.get(claim.getStudentId());
+        if (s == null || !claim.isGranted()) {
+            return;
+        }
+        synchronized (s) {
+            if (claim.getOwner().equals(s.claimedBy) && "not_voted".equals(s.status)) {
+                s.claimedBy = null;
+                s.claimExpires = 0;
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<BallotOutcome> castBallot(String ballotId, String studentId, List<Integer> candidateIds) {
+        BallotOutcome outcome;
+        electionLock.readLock().lock();
+        try {
+            outcome = count(ballotId, studentId, candidateIds);
+        } finally {
+            electionLock.readLock().unlock();
+        }
+        if (outcome == BallotOutcome.ACCEPTED) {
+            bumpResultsVersion();
+        }
+        return CompletableFuture.completedFuture(outcome);
+    }
+
+    private BallotOutcome count(String ballotId, String studentId, List<Integer> candidateIds) {
+        if (!electionActive) {
+            return countedBallots.contains(ballotId) ? BallotOutcome.ACCEPTED : BallotOutcome.ELECTION_CLOSED;
+        }
+        Student s = students.get(studentId);
+        if (s == null) {
+            return BallotOutcome.ALREADY_VOTED;
+        }
+        synchronized (s) {
+            // A ballot id only ever belongs to one student, so checking under that student's lock is enough
+            if (countedBallots.contains(ballotId)) {
+                return BallotOutcome.ACCEPTED;
+            }
+            if ("voted".equals(s.status)) {
+                return BallotOutcome.ALREADY_VOTED;
+            }
+            if (!candidates.keySet().containsAll(candidateIds)) {
+                return BallotOutcome.INVALID_CANDIDATE;
+            }
+            s.status = "voted";
+            s.claimedBy = null;
+            s.claimExpires = 0;
+            countedBallots.add(ballotId);
+        }
+        totalVotes.increment();
+        for (int id : candidateIds) {
+            Candidate c = candidates.get(id);
+            if (c != null) { // deleted since the check above; its votes went with it
+                c.votes.increment();
+            }
+        }
+        return BallotOutcome.ACCEPTED;
+    }
+
+    @Override
+    public int getOfflineBallotCount() {
+        return 0;
+    }
+
+    @Override
+    public long getTotalVotes() {
+        return totalVotes.sum();
+    }
+
+    // Candidates
+
+    @Override
+    public List<Object[]> listCandidates() {
+        List<Candidate> sorted = new ArrayList<>(candidates.values());
+        sorted.sort(Comparator.comparingInt(c -> c.id));
+        List<Object[]> rows = new ArrayList<>();
+        for (Candidate c : sorted) {
+            rows.add(new Object[] { c.id, c.name });
+        }
+        return rows;
+    }
+
+    @Override
+    public boolean isCandidate(String name) {
+        for (Candidate c : candidates.values()) {
+            if (c.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void addCandidate(String name, String position) {
+        int id = candidateSeq.incrementAndGet();
+        candidates.put(id, new Candidate(id, name, position));
+        bumpResultsVersion();
+        CandidateSnapshot.invalidate();
+    }
+
+    @Override
+    public boolean deleteCandidate(int candidateId) {
+        boolean removed = candidates.remove(candidateId) != null;
+        bumpResultsVersion();
+        CandidateSnapshot.invalidate();
+        return removed;
+    }
+
+    // Election
+
+    @Override
+    public void ensureElectionStatus() {
+        // The in-memory election record always exists
+    }
+
+    @Override
+    public boolean setElectionActive(boolean active) {
+        electionLock.writeLock().lock();
+        try {
+            electionActive = active;
+        } finally {
+            electionLock.writeLock().unlock();
+        }
+        ElectionState.update(active);
+        bumpResultsVersion();
+        return true;
+    }
+
+    @Override
+    public ElectionResults loadResults() {
+        ElectionResults results = new ElectionResults();
+        results.active = electionActive;
+        if (results.active) {
+            return results;
+        }
+        for (Student s : students.values()) {
+            synchronized (s) {
+                if ("voted".equals(s.status)) {
+                    results.totalVoters++;
+                }
+            }
+        }
+        for (Candidate c : candidates.values()) {
+            results.rows.add(new ResultsListModel.Row(c.id, c.name, c.position, c.votes.intValue()));
+        }
+        results.rows.sort(Comparator.comparingInt((ResultsListModel.Row r) -> r.votes).reversed()
+            .thenComparingInt(r -> r.candidateId));
+        return results;
+    }
+
+    private void bumpResultsVersion() {
+        resultsVersion.incrementAndGet();
+        if (versionWaiters.get() > 0) {
+            synchronized (versionMonitor) {
+                versionMonitor.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public long awaitResultsChange(long known, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        versionWaiters.incrementAndGet();
+        try {
+            synchronized (versionMonitor) {
+                long remaining = timeoutMillis;
+                while (resultsVersion.get() == known && remaining > 0) {
+                    versionMonitor.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            }
+        } finally {
+            versionWaiters.decrementAndGet();
+        }
+        return resultsVersion.get();
+    }
+}
@@ -0,0 +1,474 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The MySQL-backed VoteStore. Every call borrows a pooled connection from
+ * DBConnection for its duration; ballots go through BallotIngestor's group
+ * commit and results come from TallyEngine's materialized tallies.
+ */
+public class JdbcVoteStore implements VoteStore {
+    // Sort expressions per student grid column; student_id is appended as the unique tie-breaker
+    // (status + 0 sorts and compares an ENUM by its ordinal, consistently in ORDER BY and WHERE)
+    private static final String[] SORT_EXPR = { "student_id", "(status + 0)", "COALESCE(admin_id, 0)" };
+
+    private static volatile boolean indexesReady = false;
+
+    @Override
+    public String findAdminPassword(String username) throws SQLException {
+        try (Connection con = DBConnection.getConnection("admin.login");
+             PreparedStatement ps = con.prepareStatement("SELECT password FROM admin WHERE username = ?")) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                String password = rs.getString("password");
+                return password == null ? "" : password;
+            }
+        }
+    }
+
+    @Override
+    public void addAdmin(String username, String password) throws SQLException {
+        try (Connection con = DBConnection.getConnection("admin.add");
+             PreparedStatement ps = con.prepareStatement("INSERT INTO admin(username, password) VALUES (?, ?)")) {
+            ps.setString(1, username);
+            ps.setString(2, password);
+            ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public List<String> listAdminUsernames() throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Connection con = DBConnection.getConnection("admin.list");
+             PreparedStatement ps = con.prepareStatement("SELECT username FROM admin ORDER BY username");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                names.add(rs.getString("username"));
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public List<Object[]> listAdmins() throws SQLException {
+        List<Object[]> admins = new ArrayList<>();
+        try (Connection con = DBConnection.getConnection("admin.list");
+             Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT admin_id, username FROM admin")) {
+            while (rs.next()) {
+                admins.add(new Object[] { rs.getInt("admin_id"), rs.getString("username") });
+            }
+        }
+        return admins;
+    }
+
+    @Override
+    public String addStudent(String studentId, String adminUsername) throws SQLException {
+        try (Connection con = DBConnection.getConnection("student.add")) {
+            con.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = con.prepareStatement("SELECT student_id FROM student WHERE student_id = ?")) {
+                    ps.setString(1, studentId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            return "Student ID already exists!";
+                        }
+                    }
+                }
+
+                int adminId;
+                try (PreparedStatement ps = con.prepareStatement("SELECT admin_id FROM admin WHERE username = ?")) {
+                    ps.setString(1, adminUsername);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) {
+                            return "Selected admin not found!";
+                        }
+                        adminId = rs.getInt("admin_id");
+                    }
+                }
+
+                try (PreparedStatement ps = con.prepareStatement(
+                        "INSERT INTO student(student_id, admin_id, status) VALUES (?, ?, 'not_voted')")) {
+                    ps.setString(1, studentId);
+                    ps.setInt(2, adminId);
+                    ps.executeUpdate();
+                }
+                con.commit();
+                return null;
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public void addStudent(String studentId, int adminId) throws SQLException {
+        try (Connection con = DBConnection.getConnection("student.add");
+             PreparedStatement ps = con.prepareStatement(
+                 "INSERT INTO student(student_id, status, admin_id) VALUES (?, 'not_voted', ?)")) {
+            ps.setString(1, studentId);
+            ps.setInt(2, adminId);
+            ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public boolean studentExists(String studentId) throws SQLException {
+        try (Connection con = DBConnection.getConnection("student.lookup");
+             PreparedStatement ps = con.prepareStatement("SELECT 1 FROM student WHERE student_id = ?")) {
+            ps.setString(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    @Override
+    public List<Object[]> listStudents() throws SQLException {
+        try (Connection con = DBConnection.getConnection("student.list");
+             Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT student_id, status, admin_id FROM student")) {
+            return studentRows(rs, Integer.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public List<Object[]> searchStudents(String idPrefix, int limit) throws SQLException {
+        // Primary key range scan
+        try (Connection con = DBConnection.getConnection("student.search");
+             PreparedStatement ps = con.prepareStatement(
+                 "SELECT student_id, status, admin_id FROM student WHERE student_id LIKE ? "
+                 + "ORDER BY student_id LIMIT " + limit)) {
+            ps.setString(1, StudentFilter.likePrefix(idPrefix));
+            try (ResultSet rs = ps.executeQuery()) {
+                return studentRows(rs, limit);
+            }
+        }
+    }
+
+    private static List<Object[]> studentRows(ResultSet rs, int limit) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        while (rows.size() < limit && rs.next()) {
+            rows.add(new Object[] { rs.getString("student_id"), rs.getString("status"), rs.getInt("admin_id") });
+        }
+        return rows;
+    }
+
+    @Override
+    public int countStudents(StudentFilter filter) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String where = filter.where(params);
+        try (Connection con = DBConnection.getConnection("grid.count")) {
+            ensureIndexes(con);
+            try (PreparedStatement ps = con.prepareStatement(
+                    "SELECT COUNT(*) FROM student" + (where.isEmpty() ? "" : " WHERE " + where))) {
+                bind(ps, params, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Object[]> fetchStudentPage(StudentFilter filter, int sortColumn, boolean ascending,
+                                           int page, int pageSize, Object[] afterKey) throws SQLException {
+        String expr = SORT_EXPR[sortColumn];
+        String dir = ascending ? "ASC" : "DESC";
+        String cmp = ascending ? ">" : "<";
+        String order = " ORDER BY " + expr + " " + dir + (sortColumn == 0 ? "" : ", student_id " + dir);
+        List<Object> filterParams = new ArrayList<>();
+        String filterWhere = filter.where(filterParams);
+
+        try (Connection con = DBConnection.getConnection("grid.page")) {
+            if (afterKey == null && page > 0) {
+                // Index-only probe for the key of the row before this page
+                try (PreparedStatement ps = con.prepareStatement(
+                        "SELECT " + expr + ", student_id FROM student"
+                        + (filterWhere.isEmpty() ? "" : " WHERE " + filterWhere)
+                        + order + " LIMIT ?, 1")) {
+                    int next = bind(ps, filterParams, 1);
+                    ps.setInt(next, page * pageSize - 1);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) {
+                            return new ArrayList<>();
+                        }
+                        afterKey = new Object[] { rs.getObject(1), rs.getString(2) };
+                    }
+                }
+            }
+
+            List<String> conditions = new ArrayList<>();
+            List<Object> params = new ArrayList<>(filterParams);
+            if (!filterWhere.isEmpty()) {
+                conditions.add(filterWhere);
+            }
+            if (afterKey != null) {
+                if (sortColumn == 0) {
+                    conditions.add("student_id " + cmp + " ?");
+                    params.add(afterKey[1]);
+                } else {
+                    conditions.add("(" + expr + " " + cmp + " ? OR (" + expr + " = ? AND student_id " + cmp + " ?))");
+                    params.add(afterKey[0]);
+                    params.add(afterKey[0]);
+                    params.add(afterKey[1]);
+                }
+            }
+
+            List<Object[]> rows = new ArrayList<>(pageSize);
+            try (PreparedStatement ps = con.prepareStatement(
+                    "SELECT student_id, status, admin_id, " + expr + " AS sort_key FROM student"
+                    + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                    + order + " LIMIT " + pageSize)) {
+                bind(ps, params, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new Object[] { rs.getString("student_id"), rs.getString("status"),
+                            rs.getInt("admin_id"), rs.getObject("sort_key") });
+                    }
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static int bind(PreparedStatement ps, List<Object> params, int index) throws SQLException {
+        for (Object p : params) {
+            ps.setObject(index++, p);
+        }
+        return index;
+    }
+
+    /**
+     * Adds the indexes the student grid's filters and sorts rely on, if missing.
+     * student_id prefix searches use the primary key.
+     */
+    private static void ensureIndexes(Connection con) {
+        if (indexesReady) {
+            return;
+        }
+        try {
+            createIndexIfMissing(con, "idx_student_status", "status, student_id");
+            createIndexIfMissing(con, "idx_student_admin_status", "admin_id, status, student_id");
+        } catch (SQLException e) {
+            // The grid still works, just slower
+            System.err.println("Could not create student search indexes: " + e.getMessage());
+        }
+        indexesReady = true;
+    }
+
+    private static void createIndexIfMissing(Connection con, String name, String columns) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                "SELECT 1 FROM information_schema.statistics "
+                + "WHERE table_schema = DATABASE() AND table_name = 'student' AND index_name = ?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("CREATE INDEX " + name + " ON student(" + columns + ")");
+        }
+    }
+
+    @Override
+    public StudentImporter.Result importStudents(Reader in, StudentImporter.ProgressListener listener)
+            throws IOException, SQLException {
+        try (Connection con = DBConnection.getConnection("roster.import")) {
+            return new StudentImporter(con).importFrom(in, listener);
+        }
+    }
+
+    @Override
+    public VoterClaim claimVoter(String studentId) throws SQLException {
+        // The claim checks the election itself; this only spares the round trip when it's known to be closed
+        if (Boolean.FALSE.equals(ElectionState.peek())) {
+            return VoterClaim.refused(studentId, "Election is not active. Please ask Super Admin to start the election.");
+        }
+        try (Connection con = DBConnection.getConnection("voter.claim")) {
+            return VoterClaim.tryClaim(con, studentId);
+        }
+    }
+
+    @Override
+    public void releaseClaim(VoterClaim claim) throws SQLException {
+        try (Connection con = DBConnection.getConnection("voter.release")) {
+            claim.release(con);
+        }
+    }
+
+    @Override
+    public CompletableFuture<BallotOutcome> castBallot(String ballotId, String studentId, List<Integer> candidateIds) {
+        return BallotIngestor.getInstance().submit(ballotId, studentId, candidateIds);
+    }
+
+    @Override
+    public int getOfflineBallotCount() {
+        return BallotJournal.getInstance().getDepth();
+    }
+
+    @Override
+    public long getTotalVotes() throws SQLException {
+        try (Connection con = DBConnection.getConnection("results.total")) {
+            VoteCounters.ensureSchema(con);
+            return VoteCounters.readTotalVotes(con);
+        }
+    }
+
+    @Override
+    public List<Object[]> listCandidates() throws SQLException {
+        List<Object[]> candidates = new ArrayList<>();
+        try (Connection con = DBConnection.getConnection("candidate.list");
+             Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT candidate_id, name FROM candidate")) {
+            while (rs.next()) {
+                candidates.add(new Object[] { rs.getInt("candidate_id"), rs.getString("name") });
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public boolean isCandidate(String name) throws SQLException {
+        try (Connection con = DBConnection.getConnection("candidate.lookup");
+             PreparedStatement ps = con.prepareStatement("SELECT 1 FROM candidate WHERE name = ?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    @Override
+    public void addCandidate(String name, String position) throws SQLException {
+        try (Connection con = DBConnection.getConnection("candidate.add")) {
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO candidate(name, position, votes) VALUES (?, ?, 0)")) {
+                ps.setString(1, name);
+                ps.setString(2, position);
+                ps.executeUpdate();
+                ResultsVersion.bump(con);
+                ResultsVersion.bumpCandidates(con);
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+        ResultsVersion.nudge();
+        CandidateSnapshot.invalidate();
+    }
+
+    @Override
+    public boolean deleteCandidate(int candidateId) throws SQLException {
+        int affected;
+        try (Connection con = DBConnection.getConnection("candidate.delete")) {
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement("DELETE FROM candidate WHERE candidate_id = ?")) {
+                ps.setInt(1, candidateId);
+                affected = ps.executeUpdate();
+                ResultsVersion.bump(con);
+                ResultsVersion.bumpCandidates(con);
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+        ResultsVersion.nudge();
+        CandidateSnapshot.invalidate();
+        return affected > 0;
+    }
+
+    @Override
+    public void ensureElectionStatus() throws SQLException {
+        try (Connection con = DBConnection.getConnection("election.setup")) {
+            try (Statement st = con.createStatement()) {
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS election_status (id INT PRIMARY KEY, active TINYINT(1))");
+            }
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO election_status(id, active) SELECT 1, 0 "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM election_status WHERE id = 1)")) {
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    @Override
+    public boolean setElectionActive(boolean active) throws SQLException {
+        int updated;
+        try (Connection con = DBConnection.getConnection("election.update")) {
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement("UPDATE election_status SET active = ? WHERE id = 1")) {
+                ps.setInt(1, active ? 1 : 0);
+                updated = ps.executeUpdate();
+                ResultsVersion.bump(con);
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+        if (updated > 0) {
+            ElectionState.update(active);
+        }
+        ResultsVersion.nudge();
+        return updated > 0;
+    }
+
+    @Override
+    public ElectionResults loadResults() throws SQLException {
+        ElectionResults results = new ElectionResults();
+        // While the election runs there is nothing to show, and no query to make
+        Boolean active = ElectionState.peek();
+        if (Boolean.TRUE.equals(active)) {
+            results.active = true;
+            return results;
+        }
+        try (Connection con = DBConnection.getConnection("results.load")) {
+            results.active = active != null ? active : ElectionState.read(con);
+            if (results.active) {
+                return results;
+            }
+
+            // From the tallies materialized off the ballot ledger
+            TallyEngine.catchUp(con);
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery(
+                     "SELECT c.candidate_id, c.name, c.position, COALESCE(t.votes, 0) AS total_votes, "
+                     + "(SELECT COUNT(*) FROM student WHERE status='voted') as total_voters "
+                     + "FROM candidate c LEFT JOIN candidate_tally t ON t.candidate_id = c.candidate_id "
+                     + "ORDER BY total_votes DESC")) {
+                while (rs.next()) {
+                    results.totalVoters = rs.getInt("total_voters");
+                    results.rows.add(new ResultsListModel.Row(rs.getInt("candidate_id"), rs.getString("name"),
+                        rs.getString("position"), rs.getInt("total_votes")));
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public long awaitResultsChange(long known, long timeoutMillis) throws InterruptedException {
+        return ResultsVersion.awaitChange(known, timeoutMillis);
+    }
+}
@@ -0,0 +1,81 @@
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Re-runs a transaction that lost a lock fight.
+ *
+ * InnoDB resolves a deadlock by rolling back one of the transactions
+ * (error 1213, SQLState 40001), and a lock wait that runs out gives 1205.
+ * Neither means the ballot was wrong, so the transaction is tried again
+ * after a short, randomly jittered backoff, up to MAX_ATTEMPTS times.
+ * The work passed in must roll back its own transaction on failure.
+ *
+ * getRetries() and getAborts() count what happened, for diagnostics.
+ */
+public final class LockRetry {
+    public static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MS = 10;
+    private static final long MAX_BACKOFF_MS = 200;
+
+    private static final LongAdder retries = new LongAdder();
+    private static final LongAdder aborts = new LongAdder();
+
+    public interface Work<T> {
+        T run() throws SQLException;
+    }
+
+    private LockRetry() {
+    }
+
+    public static <T> T run(Work<T> work) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.run();
+            } catch (SQLException e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                if (attempt >= MAX_ATTEMPTS) {
+                    aborts.increment();
+                    System.err.println("Giving up after " + attempt + " attempts (" + e.getMessage()
+                        + "); lock retries so far: " + retries.sum() + ", aborts: " + aborts.sum());
+                    throw e;
+                }
+                retries.increment();
+                backOff(attempt);
+            }
+        }
+    }
+
+    public static boolean isRetryable(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                SQLException s = (SQLException) t;
+                if ("40001".equals(s.getSQLState()) || s.getErrorCode() == 1213 || s.getErrorCode() == 1205) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void backOff(int attempt) throws SQLException {
+        // Full jitter: anywhere up to the exponential cap, so the losers don't collide again in step
+        long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (attempt - 1));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to retry", ie);
+        }
+    }
+
+    public static long getRetries() {
+        return retries.sum();
+    }
+
+    public static long getAborts() {
+        return aborts.sum();
+    }
+}
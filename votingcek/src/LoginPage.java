@@ -1,11 +1,11 @@
 import java.awt.*;
-import java.sql.*;
 import javax.swing.*;
-public class LoginPage extends JFrame {
+public class LoginPage extends JPanel implements AppShell.Screen {
     private JTextField usernameField;
     private JPasswordField passwordField;
     private JButton superAdminLogin; //removed student and admin fields keep it only for super admin
     private JComboBox<String> roleBox; // Role selection dropdown
+    private final DBExecutor.Scope db = DBExecutor.scopeFor(AppShell.getInstance());
 
     // Modern color scheme
     private static final Color PRIMARY_COLOR = new Color(70, 130, 180);
@@ -14,11 +14,7 @@ public class LoginPage extends JFrame {
     private static final Color TEXT_COLOR = new Color(44, 62, 80);
 
     public LoginPage() {
-        setTitle("College Election Voting System");
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
-        setSize(900, 550);
-        setLocationRelativeTo(null);
-        getContentPane().setBackground(SECONDARY_COLOR);
+        setBackground(SECONDARY_COLOR);
         setLayout(new BorderLayout(20, 20));
 
         // Header Panel
@@ -48,7 +44,24 @@ public class LoginPage extends JFrame {
 
         // Button Actions
         superAdminLogin.addActionListener(e -> handleLogin()); // 🔹 Added action
-        setVisible(true);
+    }
+
+    @Override
+    public String getTitle() {
+        return "College Election Voting System";
+    }
+
+    @Override
+    public void onShow() {
+        db.reopen();
+        // Back here after a logout: don't leave the last password in the form
+        passwordField.setText("");
+        usernameField.requestFocusInWindow();
+    }
+
+    @Override
+    public void onHide() {
+        db.cancelAll();
     }
 
     private JPanel createLoginPanel(String title, String role) {
@@ -134,8 +147,7 @@ private void handleLogin() {
     if (role.equals("Super_Admin")) {
         if (user.equals("ramu") && pass.equals("ramu")) {
             showSuccess("Welcome Super Admin!");
-            new SuperAdminDashboard().setVisible(true);
-            dispose();
+            AppShell.getInstance().show(SuperAdminDashboard.class, SuperAdminDashboard::new);
         } else {
             showError("Invalid Super Admin credentials!");
         }
@@ -146,33 +158,19 @@ private void handleLogin() {
         }
 
         // Authenticate admin against the database with clearer diagnostics
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement ps = con.prepareStatement("SELECT password FROM admin WHERE username = ?")) {
-
-            ps.setString(1, user);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) {
-                    showError("No admin account found for username: '" + user + "'.\n" +
-                              "Create one using the SQL in README or via Super_Admin dashboard.");
-                    return;
-                }
-
-                String dbPass = rs.getString("password");
-                if (dbPass == null) dbPass = "";
-
-                if (dbPass.equals(pass)) {
-                    showSuccess("Welcome Admin!");
-                    new AdminDashboard().setVisible(true);
-                    dispose();
-                } else {
-                    showError("Incorrect password for user '" + user + "'.\n" +
-                              "If you forgot the password, reset it from Super_Admin dashboard or update it in the database.");
-                }
+        db.submit(() -> VoteStore.getInstance().findAdminPassword(user), dbPass -> {
+            if (dbPass == null) {
+                showError("No admin account found for username: '" + user + "'.\n" +
+                          "Create one using the SQL in README or via Super_Admin dashboard.");
+            } else if (dbPass.equals(pass)) {
+                showSuccess("Welcome Admin!");
+                AppShell.getInstance().show(AdminDashboard.class, AdminDashboard::new);
+            } else {
+                showError("Incorrect password for user '" + user + "'.\n" +
+                          "If you forgot the password, reset it from Super_Admin dashboard or update it in the database.");
             }
-
-        } catch (SQLException e) {
-            showError("Database error: " + e.getMessage() + "\nPlease ensure MySQL is running and the 'college_voting' database exists.");
-        }
+        }, e -> showError("Database error: " + e.getMessage() + "\nPlease ensure MySQL is running and the 'college_voting' database exists."),
+            superAdminLogin, usernameField, passwordField, roleBox);
     }
 }
 
@@ -183,8 +181,7 @@ private void handleLogin() {
 
         if (user.equals("ramu") && pass.equals("ramu")) {
             showSuccess("Welcome Super Admin!");
-            new SuperAdminDashboard().setVisible(true);
-            dispose();
+            AppShell.getInstance().show(SuperAdminDashboard.class, SuperAdminDashboard::new);
         } else {
             showError("Invalid Super Admin credentials!");
         }
@@ -205,6 +202,6 @@ private void handleLogin() {
             System.err.println("LookAndFeel error: " + e.getMessage());
         }
 
-        SwingUtilities.invokeLater(LoginPage::new);
+        SwingUtilities.invokeLater(() -> AppShell.getInstance().show(LoginPage.class, LoginPage::new));
     }
 }
\ No newline at end of file
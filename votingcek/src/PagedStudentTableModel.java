@@ -0,0 +1,168 @@
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Student grid model that only holds the pages the JTable is looking at.
+ *
+ * Rows are fetched PAGE_SIZE at a time with keyset pagination (WHERE key > last
+ * key of the previous page) as the table scrolls, and the last MAX_PAGES pages
+ * are kept in an LRU. Jumping far down the scrollbar costs one index-only
+ * OFFSET probe to find the page's starting key. Sorting and filtering
+ * (student_id prefix, status, admin) happen in the VoteStore.
+ */
+public class PagedStudentTableModel extends AbstractTableModel {
+    public static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 10;
+    private static final String LOADING = "…";
+
+    private static final String[] COLUMNS = { "ID", "Status", "Admin ID" };
+
+    private final DBExecutor.Scope db;
+    private final VoteStore store;
+    private final Map<Integer, List<Object[]>> pages = new LinkedHashMap<Integer, List<Object[]>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Object[]>> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    private final Set<CompletableFuture<?>> inFlight = new HashSet<>();
+    private StudentFilter filter = StudentFilter.NONE;
+
+    private int rowCount = 0;
+    private int sortColumn = 0;
+    private boolean ascending = true;
+    // Bumped on every reload so pages fetched for an old sort order are dropped
+    private int generation = 0;
+
+    public PagedStudentTableModel(DBExecutor.Scope db, VoteStore store) {
+        this.db = db;
+        this.store = store;
+    }
+
+    /**
+     * Re-reads the row count and drops cached pages, cancelling anything still
+     * loading for the previous sort or filter. Call on the EDT.
+     */
+    public void reload() {
+        int gen = ++generation;
+        pages.clear();
+        loading.clear();
+        for (CompletableFuture<?> f : inFlight) {
+            f.cancel(true);
+        }
+        inFlight.clear();
+
+        StudentFilter f = filter;
+        track(db.submit(() -> store.countStudents(f), count -> {
+            if (gen != generation) return;
+            rowCount = count;
+            fireTableDataChanged();
+        }, null));
+    }
+
+    /**
+     * Narrows the grid. Blank/null arguments mean "any".
+     */
+    public void setFilter(String idPrefix, String status, String adminUsername) {
+        filter = new StudentFilter(idPrefix, status, adminUsername);
+        reload();
+    }
+
+    private void track(CompletableFuture<?> future) {
+        inFlight.add(future);
+        future.whenComplete((v, t) -> javax.swing.SwingUtilities.invokeLater(() -> inFlight.remove(future)));
+    }
+
+    /**
+     * Header click: sort by the column, toggling direction on repeated clicks.
+     */
+    public void sortBy(int column) {
+        if (column < 0 || column >= COLUMNS.length) return;
+        if (column == sortColumn) {
+            ascending = !ascending;
+        } else {
+            sortColumn = column;
+            ascending = true;
+        }
+        reload();
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        String name = COLUMNS[column];
+        return column == sortColumn ? name + (ascending ? " ▲" : " ▼") : name;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / PAGE_SIZE;
+        List<Object[]> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return LOADING;
+        }
+        int index = row % PAGE_SIZE;
+        return index < rows.size() ? rows.get(index)[column] : null;
+    }
+
+    private void requestPage(int page) {
+        if (!loading.add(page)) {
+            return;
+        }
+        int gen = generation;
+        int sort = sortColumn;
+        boolean asc = ascending;
+        // Key of the row just before this page, if we already have it
+        Object[] previousLast = null;
+        List<Object[]> previous = pages.get(page - 1);
+        if (previous != null && !previous.isEmpty()) {
+            Object[] last = previous.get(previous.size() - 1);
+            previousLast = new Object[] { last[3], last[0] };
+        }
+        Object[] knownKey = previousLast;
+        StudentFilter f = filter;
+
+        track(db.submit(() -> store.fetchStudentPage(f, sort, asc, page, PAGE_SIZE, knownKey), rows -> {
+            if (gen != generation) return;
+            loading.remove(page);
+            pages.put(page, rows);
+            int first = page * PAGE_SIZE;
+            int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+            if (last >= first) {
+                fireTableRowsUpdated(first, last);
+            }
+        }, e -> {
+            if (gen == generation) loading.remove(page);
+            System.err.println("Error loading student page " + page + ": " + e.getMessage());
+        }));
+    }
+}
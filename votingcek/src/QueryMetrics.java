@@ -0,0 +1,346 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of every JDBC statement, grouped by a logical query name such as
+ * "results.load" or "vote.commit".
+ *
+ * Connections from DBConnection carry the name they were borrowed for, and
+ * ConnectionPool hands out statements wrapped by wrap() so every execute call
+ * is timed. A tag() on the current thread overrides the connection's name for
+ * a nested step, e.g. the tally fold inside a results load.
+ *
+ * Histograms are lock-free: log-linear buckets (four per power of two, so a
+ * percentile is within about 20%) in an AtomicLongArray plus LongAdder totals.
+ * The Diagnostics tab reads them through snapshot(); a Scheduler task also
+ * writes them, with the pool, lock retry and journal counters, in Prometheus
+ * text format to voting.metrics.file every voting.metrics.intervalSeconds.
+ */
+public final class QueryMetrics {
+    public static final String UNTAGGED = "untagged";
+
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<String> TAG = new ThreadLocal<>();
+    private static final LongAdder connectionFailures = new LongAdder();
+
+    // Bucket bounds for the Prometheus dump, in seconds
+    private static final double[] EXPORT_BOUNDS = { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    private static Scheduler.Task dumper;
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Names the statements this thread runs until the returned tag is closed.
+     */
+    public static Tag tag(String name) {
+        Tag tag = new Tag(TAG.get());
+        TAG.set(name);
+        return tag;
+    }
+
+    public static final class Tag implements AutoCloseable {
+        private final String previous;
+
+        private Tag(String previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                TAG.remove();
+            } else {
+                TAG.set(previous);
+            }
+        }
+    }
+
+    public static void record(String name, long nanos, boolean failed) {
+        HISTOGRAMS.computeIfAbsent(name, n -> new Histogram()).record(nanos, failed);
+    }
+
+    /** A connection could not be borrowed at all. */
+    public static void recordConnectionFailure() {
+        connectionFailures.increment();
+    }
+
+    /**
+     * Wraps a statement so its execute calls are timed under the current tag,
+     * or under connectionName when there is none.
+     */
+    static Statement wrap(Statement statement, String connectionName) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+            : statement instanceof PreparedStatement ? PreparedStatement.class
+            : Statement.class;
+        return (Statement) Proxy.newProxyInstance(QueryMetrics.class.getClassLoader(),
+            new Class<?>[] { type }, new TimedStatement(statement, connectionName));
+    }
+
+    private static final class TimedStatement implements InvocationHandler {
+        private final Statement target;
+        private final String connectionName;
+
+        TimedStatement(Statement target, String connectionName) {
+            this.target = target;
+            this.connectionName = connectionName;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            String tag = TAG.get();
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = method.invoke(target, args);
+                failed = false;
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                record(tag != null ? tag : connectionName, System.nanoTime() - start, failed);
+            }
+        }
+    }
+
+    /**
+     * Point-in-time view of one query name.
+     */
+    public static final class Snapshot {
+        public final String name;
+        public final long count;
+        public final long errors;
+        public final double meanMillis;
+        public final double p50Millis;
+        public final double p99Millis;
+        public final double p999Millis;
+        public final double maxMillis;
+        final long[] buckets;
+        final long sumNanos;
+
+        Snapshot(String name, long count, long errors, long sumNanos, long maxNanos, long[] buckets) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.sumNanos = sumNanos;
+            this.buckets = buckets;
+            this.meanMillis = count == 0 ? 0 : sumNanos / 1e6 / count;
+            this.p50Millis = Math.min(Histogram.percentile(buckets, 0.50), maxNanos) / 1e6;
+            this.p99Millis = Math.min(Histogram.percentile(buckets, 0.99), maxNanos) / 1e6;
+            this.p999Millis = Math.min(Histogram.percentile(buckets, 0.999), maxNanos) / 1e6;
+            this.maxMillis = maxNanos / 1e6;
+        }
+    }
+
+    /** Every query name seen so far, alphabetically. */
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            snapshots.add(e.getValue().snapshot(e.getKey()));
+        }
+        return snapshots;
+    }
+
+    public static long getConnectionFailures() {
+        return connectionFailures.sum();
+    }
+
+    private static final class Histogram {
+        static final int BUCKETS = 128;
+        // Values below 2^MIN_EXPONENT ns (about 1us) share bucket 0
+        static final int MIN_EXPONENT = 10;
+
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder sumNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, boolean failed) {
+            buckets.incrementAndGet(index(nanos));
+            count.increment();
+            sumNanos.add(nanos);
+            if (failed) {
+                errors.increment();
+            }
+            long prev;
+            while (nanos > (prev = maxNanos.get())) {
+                if (maxNanos.compareAndSet(prev, nanos)) {
+                    break;
+                }
+            }
+        }
+
+        static int index(long nanos) {
+            if (nanos < (1L << MIN_EXPONENT)) {
+                return 0;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int sub = (int) (nanos >> (exponent - 2)) & 3;
+            return Math.min(BUCKETS - 1, (exponent - MIN_EXPONENT) * 4 + sub + 1);
+        }
+
+        /** Exclusive upper bound of a bucket, in nanoseconds. */
+        static long upperBound(int index) {
+            if (index == 0) {
+                return 1L << MIN_EXPONENT;
+            }
+            int exponent = (index - 1) / 4 + MIN_EXPONENT;
+            int sub = (index - 1) % 4;
+            return (5L + sub) << (exponent - 2);
+        }
+
+        static long percentile(long[] buckets, double p) {
+            long total = 0;
+            for (long b : buckets) {
+                total += b;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(buckets.length - 1);
+        }
+
+        Snapshot snapshot(String name) {
+            long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = buckets.get(i);
+            }
+            return new Snapshot(name, count.sum(), errors.sum(), sumNanos.sum(), maxNanos.get(), copy);
+        }
+    }
+
+    /**
+     * The query="..." label, with the value escaped as the exposition format requires.
+     */
+    private static String queryLabel(String name) {
+        return "query=\"" + name.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    /**
+     * Everything in Prometheus text exposition format. Histogram buckets are
+     * cumulative counts of statements whose fine bucket lies entirely below le.
+     */
+    public static void writePrometheus(Writer out) throws IOException {
+        out.write("# HELP voting_query_duration_seconds JDBC statement latency by logical query.\n");
+        out.write("# TYPE voting_query_duration_seconds histogram\n");
+        for (Snapshot s : snapshot()) {
+            String label = queryLabel(s.name);
+            int fine = 0;
+            long cumulative = 0;
+            for (double bound : EXPORT_BOUNDS) {
+                long boundNanos = (long) (bound * 1e9);
+                while (fine < s.buckets.length && Histogram.upperBound(fine) <= boundNanos) {
+                    cumulative += s.buckets[fine++];
+                }
+                out.write("voting_query_duration_seconds_bucket{" + label + ",le=\""
+                    + BigDecimal.valueOf(bound).toPlainString() + "\"} " + cumulative + "\n");
+            }
+            out.write("voting_query_duration_seconds_bucket{" + label + ",le=\"+Inf\"} " + s.count + "\n");
+            out.write(String.format(Locale.ROOT, "voting_query_duration_seconds_sum{%s} %.9f%n", label, s.sumNanos / 1e9));
+            out.write("voting_query_duration_seconds_count{" + label + "} " + s.count + "\n");
+        }
+        out.write("# HELP voting_query_errors_total JDBC statements that threw, by logical query.\n");
+        out.write("# TYPE voting_query_errors_total counter\n");
+        for (Snapshot s : snapshot()) {
+            out.write("voting_query_errors_total{" + queryLabel(s.name) + "} " + s.errors + "\n");
+        }
+
+        counter(out, "voting_connection_failures_total", "Connections that could not be borrowed.", connectionFailures.sum());
+        counter(out, "voting_lock_retries_total", "Ballot transactions retried after a deadlock or lock timeout.", LockRetry.getRetries());
+        counter(out, "voting_lock_aborts_total", "Ballot transactions that ran out of lock retries.", LockRetry.getAborts());
+
+        ConnectionPool.Stats pool = DBConnection.getPoolStats();
+        if (pool != null) {
+            gauge(out, "voting_pool_active", "Connections borrowed right now.", pool.active);
+            gauge(out, "voting_pool_idle", "Open connections waiting in the pool.", pool.idle);
+            gauge(out, "voting_pool_waiting", "Threads waiting for a connection.", pool.waiting);
+            counter(out, "voting_pool_timeouts_total", "Borrows that timed out.", pool.timeouts);
+            gauge(out, "voting_pool_borrow_max_seconds", "Slowest borrow so far.", pool.maxBorrowMicros / 1e6);
+        }
+        gauge(out, "voting_scheduled_tasks", "Tasks live on the shared Scheduler.", Scheduler.getLiveTaskCount());
+        try {
+            gauge(out, "voting_journal_depth", "Ballots in the offline journal waiting for the database.",
+                VoteStore.getInstance().getOfflineBallotCount());
+        } catch (IllegalStateException e) {
+            // No journal on this machine; leave the gauge out
+        }
+    }
+
+    private static void counter(Writer out, String name, String help, long value) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n# TYPE " + name + " counter\n" + name + " " + value + "\n");
+    }
+
+    private static void gauge(Writer out, String name, String help, Number value) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n# TYPE " + name + " gauge\n" + name + " " + value + "\n");
+    }
+
+    /**
+     * Starts the periodic Prometheus dump, once per process.
+     */
+    static synchronized void startDump() {
+        if (dumper != null) {
+            return;
+        }
+        File file = new File(System.getProperty("voting.metrics.file",
+            System.getProperty("user.home") + File.separator + ".college-voting" + File.separator + "metrics.prom"));
+        long interval = Long.getLong("voting.metrics.intervalSeconds", 15);
+        dumper = Scheduler.every("metrics-dump", Scheduler.Mode.BACKGROUND, interval, interval, TimeUnit.SECONDS,
+            () -> dump(file));
+    }
+
+    private static void dump(File file) {
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            // Write aside and move into place so a scraper never reads half a file
+            File tmp = new File(file.getPath() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                writePrometheus(out);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.swing.AbstractListModel;
+
+/**
+ * Election results keyed by candidate_id.
+ *
+ * update() takes a fresh snapshot and works out what actually changed
+ * against the rows already shown: candidates that disappeared are removed,
+ * new ones inserted, moved ones relocated and rows whose votes or names
+ * changed are repainted. Untouched rows fire nothing, so a refresh with no
+ * changes costs no layout or painting at all. Call on the EDT.
+ */
+public class ResultsListModel extends AbstractListModel<ResultsListModel.Row> {
+
+    public static final class Row {
+        final int candidateId;
+        final String name;
+        final String position;
+        final int votes;
+
+        public Row(int candidateId, String name, String position, int votes) {
+            this.candidateId = candidateId;
+            this.name = name;
+            this.position = position;
+            this.votes = votes;
+        }
+
+        boolean sameContent(Row other) {
+            return votes == other.votes
+                && Objects.equals(name, other.name)
+                && Objects.equals(position, other.position);
+        }
+    }
+
+    private final List<Row> rows = new ArrayList<>();
+    private int totalVoters = 0;
+
+    @Override
+    public int getSize() {
+        return rows.size();
+    }
+
+    @Override
+    public Row getElementAt(int index) {
+        return rows.get(index);
+    }
+
+    public int getTotalVoters() {
+        return totalVoters;
+    }
+
+    /**
+     * Replaces the contents with {@code fresh} (already in display order),
+     * firing only the events needed to get there.
+     */
+    public void update(List<Row> fresh, int freshTotalVoters) {
+        Set<Integer> keep = new HashSet<>();
+        for (Row r : fresh) {
+            keep.add(r.candidateId);
+        }
+
+        // Deleted candidates, from the bottom up so indexes stay valid
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            if (!keep.contains(rows.get(i).candidateId)) {
+                rows.remove(i);
+                fireIntervalRemoved(this, i, i);
+            }
+        }
+
+        Map<Integer, Integer> position = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            position.put(rows.get(i).candidateId, i);
+        }
+
+        for (int i = 0; i < fresh.size(); i++) {
+            Row next = fresh.get(i);
+            Row current = i < rows.size() ? rows.get(i) : null;
+            if (current != null && current.candidateId == next.candidateId) {
+                if (!current.sameContent(next)) {
+                    rows.set(i, next);
+                    fireContentsChanged(this, i, i);
+                }
+                continue;
+            }
+
+            Integer from = position.get(next.candidateId);
+            if (from != null) {
+                // Moved up the ranking: take it out of its old slot first
+                rows.remove((int) from);
+                fireIntervalRemoved(this, from, from);
+            }
+            rows.add(i, next);
+            fireIntervalAdded(this, i, i);
+            // A move shifts the rows between the two slots, an insert shifts everything below
+            int last = from != null ? from : rows.size() - 1;
+            for (int j = i + 1; j <= last; j++) {
+                position.put(rows.get(j).candidateId, j);
+            }
+        }
+
+        if (freshTotalVoters != totalVoters) {
+            // Every percentage depends on the total
+            totalVoters = freshTotalVoters;
+            if (!rows.isEmpty()) {
+                fireContentsChanged(this, 0, rows.size() - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.sql.*;
+
+/**
+ * Monotonic version number for everything the results view shows.
+ *
+ * Admin changes (candidate add/delete, election start/stop) call bump()
+ * inside their transaction; ballots bump once per committed batch, after the
+ * commit and in a statement of its own, so vote transactions never hold this
+ * row's lock. Either way nudge() follows the commit. Dashboards call
+ * awaitChange(), which blocks until the version moves or the timeout passes.
+ * One poller thread per process reads results_version every POLL_MS, and
+ * only while someone is waiting, so changes made by other kiosks show up
+ * within a second and idle dashboards cost one primary-key read per half
+ * second for the whole process. The same poll keeps ElectionState current,
+ * and CandidateSnapshot through a second row that only candidate changes bump.
+ */
+public final class ResultsVersion {
+    private static final long POLL_MS = 500;
+    private static final int RESULTS_ROW = 1;
+    private static final int CANDIDATES_ROW = 2;
+
+    private static final Object LOCK = new Object();
+    private static final Object NUDGE = new Object();
+    private static long current = -1;
+    private static int waiters = 0;
+    private static boolean nudged = false;
+    private static Thread poller;
+    private static volatile boolean schemaReady = false;
+
+    private ResultsVersion() {
+    }
+
+    public static void ensureSchema(Connection con) throws SQLException {
+        if (schemaReady) {
+            return;
+        }
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS results_version (id INT PRIMARY KEY, version BIGINT NOT NULL DEFAULT 0)");
+            st.executeUpdate("INSERT IGNORE INTO results_version(id, version) VALUES ("
+                + RESULTS_ROW + ", 0), (" + CANDIDATES_ROW + ", 0)");
+        }
+        schemaReady = true;
+    }
+
+    /**
+     * Moves the version forward. Never call inside a ballot transaction: every
+     * kiosk would then queue on this row until the ballot commits.
+     */
+    public static void bump(Connection con) throws SQLException {
+        bump(con, RESULTS_ROW);
+    }
+
+    /**
+     * Moves the candidates version forward, which tells every process to drop
+     * its CandidateSnapshot. Call inside the transaction that adds or deletes
+     * a candidate, along with bump().
+     */
+    public static void bumpCandidates(Connection con) throws SQLException {
+        bump(con, CANDIDATES_ROW);
+    }
+
+    private static void bump(Connection con, int row) throws SQLException {
+        ensureSchema(con);
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("UPDATE results_version SET version = version + 1 WHERE id = " + row);
+        }
+    }
+
+    /**
+     * Both versions in one read.
+     *
+     * @return the results version and the candidates version, in that order
+     */
+    private static long[] read(Connection con) throws SQLException {
+        ensureSchema(con);
+        long[] versions = new long[2];
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, version FROM results_version WHERE id IN ("
+                 + RESULTS_ROW + ", " + CANDIDATES_ROW + ")")) {
+            while (rs.next()) {
+                versions[rs.getInt(1) == RESULTS_ROW ? 0 : 1] = rs.getLong(2);
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Tells the poller to re-read now instead of at the next tick. Call after committing a bump.
+     */
+    public static void nudge() {
+        synchronized (NUDGE) {
+            nudged = true;
+            NUDGE.notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until the version differs from {@code known} or the timeout passes.
+     *
+     * @return the latest version seen (equal to {@code known} on timeout)
+     */
+    public static long awaitChange(long known, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (LOCK) {
+            waiters++;
+            startPoller();
+            LOCK.notifyAll();
+            try {
+                while (current < 0 || current == known) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    LOCK.wait(remaining);
+                }
+                return current < 0 ? known : current;
+            } finally {
+                waiters--;
+            }
+        }
+    }
+
+    private static void startPoller() {
+        if (poller != null) {
+            return;
+        }
+        poller = new Thread(ResultsVersion::pollLoop, "results-version-poller");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    private static void pollLoop() {
+        while (true) {
+            try {
+                synchronized (LOCK) {
+                    while (waiters == 0) {
+                        LOCK.wait();
+                    }
+                }
+
+                try (Connection con = DBConnection.getBackgroundConnection("results.poll")) {
+                    long[] versions = read(con);
+                    long v = versions[0];
+                    CandidateSnapshot.confirm(versions[1]);
+                    // Election start/stop moves the version too: re-read the flag only then,
+                    // and before waking the dashboards that will ask for it
+                    if (v != current) {
+                        try {
+                            ElectionState.read(con);
+                        } catch (SQLException e) {
+                            System.err.println("Election state read failed: " + e.getMessage());
+                        }
+                    } else {
+                        ElectionState.confirm();
+                    }
+                    synchronized (LOCK) {
+                        if (v != current) {
+                            current = v;
+                            LOCK.notifyAll();
+                        }
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Results version poll failed: " + e.getMessage());
+                }
+
+                synchronized (NUDGE) {
+                    if (!nudged) {
+                        NUDGE.wait(POLL_MS);
+                    }
+                    nudged = false;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+
+/**
+ * The one timer thread for the whole process: ballot countdowns, dashboard
+ * refreshes, retry back-offs, pool housekeeping and the metrics dump all
+ * schedule through here instead of each starting a Timer or executor thread
+ * of its own.
+ *
+ * The scheduler thread only keeps time. Each task says where its action
+ * runs: on the EDT for anything that touches Swing, or in the background (the
+ * DB executor) for anything that may block. A repeating task runs at a fixed
+ * rate but never overlaps itself; the next run is scheduled once the current
+ * one has finished.
+ *
+ * Cancelling is deterministic: once cancel() returns, the action won't start
+ * again, even if its tick was already queued on the EDT. Every live task is
+ * counted, by name, for the Diagnostics tab.
+ */
+public final class Scheduler {
+    /** Where a task's action runs. */
+    public enum Mode {
+        EDT, BACKGROUND
+    }
+
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+    private static final Set<Task> live = ConcurrentHashMap.newKeySet();
+
+    private Scheduler() {
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "voting-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        // Cancelled tasks leave the queue at once instead of lingering until their time comes
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * Runs the action once after the delay.
+     */
+    public static Task after(String name, Mode mode, long delay, TimeUnit unit, Runnable action) {
+        return start(new Task(name, mode, 0, action), unit.toNanos(delay));
+    }
+
+    /**
+     * Runs the action every period, the first time after initialDelay, until cancelled.
+     */
+    public static Task every(String name, Mode mode, long initialDelay, long period, TimeUnit unit, Runnable action) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        return start(new Task(name, mode, unit.toNanos(period), action), unit.toNanos(initialDelay));
+    }
+
+    public static int getLiveTaskCount() {
+        return live.size();
+    }
+
+    /** Live tasks per name, alphabetically. */
+    public static Map<String, Integer> getLiveTasks() {
+        Map<String, Integer> byName = new TreeMap<>();
+        for (Task task : live) {
+            byName.merge(task.name, 1, Integer::sum);
+        }
+        return byName;
+    }
+
+    private static Task start(Task task, long delayNanos) {
+        live.add(task);
+        synchronized (task) {
+            task.nextAt = System.nanoTime() + delayNanos;
+            task.pending = TIMER.schedule(task::fire, delayNanos, TimeUnit.NANOSECONDS);
+        }
+        return task;
+    }
+
+    /**
+     * A scheduled action. Cancel it when its owner goes away.
+     */
+    public static final class Task {
+        private final String name;
+        private final Mode mode;
+        private final long periodNanos;
+        private final Runnable action;
+        private volatile boolean cancelled;
+        private long nextAt;
+        private ScheduledFuture<?> pending;
+
+        private Task(String name, Mode mode, long periodNanos, Runnable action) {
+            this.name = name;
+            this.mode = mode;
+            this.periodNanos = periodNanos;
+            this.action = action;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            synchronized (this) {
+                if (pending != null) {
+                    pending.cancel(false);
+                    pending = null;
+                }
+            }
+            live.remove(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        // On the scheduler thread: hand the action to where it runs
+        private void fire() {
+            if (cancelled) {
+                return;
+            }
+            if (mode == Mode.EDT) {
+                SwingUtilities.invokeLater(this::run);
+            } else {
+                DBExecutor.submit(() -> {
+                    run();
+                    return null;
+                });
+            }
+        }
+
+        private void run() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                // Keep a repeating task alive; one bad tick shouldn't stop the countdown or the dump
+                System.err.println("Scheduled task " + name + " failed: " + e);
+            } catch (Error e) {
+                // Not rescheduled past this, so don't leave it counted as live
+                cancel();
+                throw e;
+            }
+            if (periodNanos == 0) {
+                live.remove(this);
+                return;
+            }
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                nextAt += periodNanos;
+                long delay = Math.max(0, nextAt - System.nanoTime());
+                pending = TIMER.schedule(this::fire, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
+
+/**
+ * Runs a search action once typing in a field has paused, instead of on every keystroke.
+ */
+public final class SearchDebouncer {
+    public static final int DEFAULT_DELAY_MS = 250;
+
+    private SearchDebouncer() {
+    }
+
+    public static void attach(JTextComponent field, Runnable action) {
+        attach(field, DEFAULT_DELAY_MS, action);
+    }
+
+    public static void attach(JTextComponent field, int delayMillis, Runnable action) {
+        Timer timer = new Timer(delayMillis, e -> action.run());
+        timer.setRepeats(false);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+        });
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable student grid filter, so a page query always matches the filter it was started for.
+ * Blank/null arguments mean "any".
+ */
+public final class StudentFilter {
+    public static final StudentFilter NONE = new StudentFilter("", null, null);
+
+    final String idPrefix;
+    final String status;
+    final String adminUsername;
+
+    public StudentFilter(String idPrefix, String status, String adminUsername) {
+        this.idPrefix = idPrefix == null ? "" : idPrefix.trim();
+        this.status = status == null || status.isEmpty() ? null : status;
+        this.adminUsername = adminUsername == null || adminUsername.isEmpty() ? null : adminUsername;
+    }
+
+    /**
+     * SQL condition for the student table (empty if there is none), adding its parameters to params.
+     */
+    String where(List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (!idPrefix.isEmpty()) {
+            conditions.add("student_id LIKE ?");
+            params.add(likePrefix(idPrefix));
+        }
+        if (status != null) {
+            conditions.add("status = ?");
+            params.add(status);
+        }
+        if (adminUsername != null) {
+            conditions.add("admin_id = (SELECT admin_id FROM admin WHERE username = ?)");
+            params.add(adminUsername);
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    boolean matches(String studentId, String studentStatus, String studentAdminUsername) {
+        return studentId.startsWith(idPrefix)
+            && (status == null || status.equals(studentStatus))
+            && (adminUsername == null || adminUsername.equals(studentAdminUsername));
+    }
+
+    /** LIKE pattern matching everything that starts with prefix literally. */
+    static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
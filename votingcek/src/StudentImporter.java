@@ -0,0 +1,251 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Streams a student roster into the student table.
+ *
+ * Input is CSV, one student per line: student_id[,admin_username[,status]].
+ * A header line starting with "student_id" is skipped, as are blank lines.
+ * Status may only be not_voted: a student becomes voted by casting a ballot,
+ * which also writes the ledger row and counts it, never by import.
+ * Rows are written as multi-row INSERT IGNORE statements of CHUNK_SIZE rows,
+ * so existing students are skipped without one round trip (and one caught
+ * exception) per duplicate. Each chunk commits on its own, so a cancelled or
+ * failed import keeps what it already wrote.
+ *
+ * Where the rows go is a Target; the Connection constructor writes to MySQL.
+ */
+public class StudentImporter {
+    public static final int CHUNK_SIZE = 1000;
+    private static final int MAX_ID_LENGTH = 20;
+
+    public interface ProgressListener {
+        void onProgress(Result soFar, long charsRead);
+    }
+
+    /**
+     * Destination of an import.
+     */
+    public interface Target {
+        /** Admin ids by username, for resolving the admin column. */
+        Map<String, Integer> loadAdmins() throws SQLException;
+
+        /**
+         * Inserts rows of {student_id, admin_id or null, status}, skipping students that already exist.
+         *
+         * @return how many were inserted
+         */
+        int insertNew(List<String[]> rows) throws SQLException;
+
+        default void close() throws SQLException {
+        }
+    }
+
+    public static final class Result {
+        public int added;
+        public int skipped;
+        public int invalid;
+
+        Result copy() {
+            Result r = new Result();
+            r.added = added;
+            r.skipped = skipped;
+            r.invalid = invalid;
+            return r;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d added, %d skipped, %d invalid", added, skipped, invalid);
+        }
+    }
+
+    private final Target target;
+    private final Map<String, Integer> adminIds = new HashMap<>();
+
+    public StudentImporter(Connection con) {
+        this(new JdbcTarget(con));
+    }
+
+    public StudentImporter(Target target) {
+        this.target = target;
+    }
+
+    /**
+     * Imports everything from the reader. Checks the worker's interrupt flag
+     * between chunks and throws CancellationException if it was set.
+     */
+    public Result importFrom(Reader in, ProgressListener listener) throws IOException, SQLException {
+        Result result = new Result();
+        VotingEvents.BulkImport event = new VotingEvents.BulkImport();
+        event.begin();
+        try {
+            importInto(result, in, listener);
+            event.completed = true;
+        } finally {
+            event.rowsAffected = result.added;
+            event.skipped = result.skipped;
+            event.invalid = result.invalid;
+            event.commit();
+        }
+        return result;
+    }
+
+    private void importInto(Result result, Reader in, ProgressListener listener) throws IOException, SQLException {
+        loadAdmins();
+        List<String[]> chunk = new ArrayList<>(CHUNK_SIZE);
+        long charsRead = 0;
+
+        try (BufferedReader reader = new BufferedReader(in, 1 << 16)) {
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                charsRead += line.length() + 1;
+                if (first) {
+                    first = false;
+                    if (line.toLowerCase().startsWith("student_id")) {
+                        continue;
+                    }
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                String[] row = parse(line);
+                if (row == null) {
+                    result.invalid++;
+                    continue;
+                }
+                chunk.add(row);
+
+                if (chunk.size() == CHUNK_SIZE) {
+                    flush(chunk, result);
+                    if (listener != null) {
+                        listener.onProgress(result.copy(), charsRead);
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new CancellationException("Import cancelled: " + result);
+                    }
+                }
+            }
+            flush(chunk, result);
+            if (listener != null) {
+                listener.onProgress(result.copy(), charsRead);
+            }
+        } finally {
+            target.close();
+        }
+    }
+
+    private void loadAdmins() throws SQLException {
+        adminIds.clear();
+        adminIds.putAll(target.loadAdmins());
+    }
+
+    /**
+     * @return {student_id, admin_id or null, status}, or null if the line is invalid
+     */
+    private String[] parse(String line) {
+        String[] parts = line.split(",", -1);
+        String id = parts[0].trim();
+        if (id.isEmpty() || id.length() > MAX_ID_LENGTH) {
+            return null;
+        }
+
+        String adminId = null;
+        if (parts.length > 1 && !parts[1].trim().isEmpty()) {
+            Integer known = adminIds.get(parts[1].trim());
+            if (known == null) {
+                return null;
+            }
+            adminId = known.toString();
+        }
+
+        String status = "not_voted";
+        if (parts.length > 2 && !parts[2].trim().isEmpty()) {
+            status = parts[2].trim().toLowerCase();
+            if (!status.equals("not_voted")) {
+                return null;
+            }
+        }
+        return new String[] { id, adminId, status };
+    }
+
+    private void flush(List<String[]> chunk, Result result) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        int inserted = target.insertNew(chunk);
+        result.added += inserted;
+        result.skipped += chunk.size() - inserted;
+        chunk.clear();
+    }
+
+    /**
+     * Multi-row INSERT IGNORE, with one cached statement per chunk size.
+     */
+    private static final class JdbcTarget implements Target {
+        private final Connection con;
+        private final Map<Integer, PreparedStatement> statements = new HashMap<>();
+
+        JdbcTarget(Connection con) {
+            this.con = con;
+        }
+
+        @Override
+        public Map<String, Integer> loadAdmins() throws SQLException {
+            Map<String, Integer> admins = new HashMap<>();
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT admin_id, username FROM admin")) {
+                while (rs.next()) {
+                    admins.put(rs.getString("username"), rs.getInt("admin_id"));
+                }
+            }
+            return admins;
+        }
+
+        @Override
+        public int insertNew(List<String[]> rows) throws SQLException {
+            PreparedStatement ps = statementFor(rows.size());
+            int p = 1;
+            for (String[] row : rows) {
+                ps.setString(p++, row[0]);
+                if (row[1] == null) {
+                    ps.setNull(p++, Types.INTEGER);
+                } else {
+                    ps.setInt(p++, Integer.parseInt(row[1]));
+                }
+                ps.setString(p++, row[2]);
+            }
+            return ps.executeUpdate();
+        }
+
+        private PreparedStatement statementFor(int rows) throws SQLException {
+            PreparedStatement ps = statements.get(rows);
+            if (ps == null) {
+                StringBuilder sql = new StringBuilder("INSERT IGNORE INTO student(student_id, admin_id, status) VALUES ");
+                for (int i = 0; i < rows; i++) {
+                    sql.append(i == 0 ? "(?, ?, ?)" : ",(?, ?, ?)");
+                }
+                ps = con.prepareStatement(sql.toString());
+                statements.put(rows, ps);
+            }
+            return ps;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            for (PreparedStatement ps : statements.values()) {
+                ps.close();
+            }
+            statements.clear();
+        }
+    }
+}
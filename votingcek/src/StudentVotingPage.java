@@ -1,13 +1,19 @@
 import java.awt.*;
 import java.awt.event.*;
-import java.sql.*;
 import java.util.*;
 import java.util.List;
-import java.util.Timer;
+import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 import javax.swing.border.*;
 
-public class StudentVotingPage extends JFrame {
+/**
+ * The ballot a voter sees. The page is built once and reused: open() resets
+ * the selection, the countdown and the ballot id for the next voter and brings
+ * the page to the front. The candidate cards are kept between voters and only
+ * rebuilt when the CandidateSnapshot has changed, so showing the ballot is a
+ * matter of milliseconds.
+ */
+public class StudentVotingPage extends JPanel implements AppShell.Screen {
     // Modern Color Palette
     private static final Color PRIMARY_COLOR = new Color(41, 128, 185);    // Blue
     private static final Color SECONDARY_COLOR = new Color(52, 152, 219);  // Lighter Blue
@@ -22,44 +28,118 @@ public class StudentVotingPage extends JFrame {
     private static final Font HEADER_FONT = new Font("Segoe UI", Font.BOLD, 18);
     private static final Font NORMAL_FONT = new Font("Segoe UI", Font.PLAIN, 14);
     
-    private final String studentId;
+    private static final int SESSION_SECONDS = 60;
+
+    /**
+     * Told when the voter is done with the page; it decides which screen comes next.
+     */
+    public interface Listener {
+        void votingFinished(boolean timedOut);
+    }
+
+    private String studentId;
+    private VoterClaim claim;
+    private Listener listener;
+    // One id per session: resubmitting after a lost acknowledgement can't count twice
+    private String ballotId;
     private final JPanel candidatesPanel;
+    private final JLabel studentInfoLabel;
     private final JLabel timerLabel;
     private final JProgressBar timeProgressBar;
-    private Timer timer;
+    private JLabel loadingLabel;
+    private CandidateSnapshot shownCandidates;
+    private Scheduler.Task countdown;
     private int timeLeft;
     private final List<Integer> selectedCandidates;
     private final Map<JButton, Integer> buttonToCandidateMap;
+    private final DBExecutor.Scope db = DBExecutor.scopeFor(AppShell.getInstance());
 
-    public StudentVotingPage(String studentId) {
-        this.studentId = studentId;
+    public StudentVotingPage() {
         this.candidatesPanel = new JPanel();
+        this.studentInfoLabel = new JLabel();
         this.timerLabel = new JLabel();
-        this.timeProgressBar = new JProgressBar(0, 60);
-        this.timeLeft = 60;
+        this.timeProgressBar = new JProgressBar(0, SESSION_SECONDS);
+        this.timeLeft = SESSION_SECONDS;
         this.selectedCandidates = new ArrayList<>();
         this.buttonToCandidateMap = new HashMap<>();
-        
-        setupWindow();
+
+        setBackground(BACKGROUND_COLOR);
+        setLayout(new BorderLayout(15, 15));
         setupUI();
+        // Lay the cards out now if the candidates are already known
+        CandidateSnapshot cached = CandidateSnapshot.peek();
+        if (cached != null) {
+            showCandidates(cached);
+        }
+    }
+
+    /**
+     * Shows the ballot for a claimed student.
+     */
+    public void open(VoterClaim claim, Listener listener) {
+        open(claim.getStudentId(), claim, listener);
+    }
+
+    private void open(String studentId, VoterClaim claim, Listener listener) {
+        this.studentId = studentId;
+        this.claim = claim;
+        this.listener = listener;
+        this.ballotId = UUID.randomUUID().toString();
+
+        selectedCandidates.clear();
+        for (JButton button : buttonToCandidateMap.keySet()) {
+            button.setBackground(ACCENT_COLOR);
+        }
+        studentInfoLabel.setText("Student ID: " + studentId);
+        timeLeft = SESSION_SECONDS;
+        timerLabel.setText("Time Left: " + timeLeft + "s");
+        timerLabel.setForeground(Color.WHITE);
+        timeProgressBar.setValue(timeLeft);
+        timeProgressBar.setForeground(ACCENT_COLOR);
+
+        // On screen first: showing the page reopens its scope for the candidate load
+        AppShell.getInstance().show(StudentVotingPage.class, StudentVotingPage::new);
         loadCandidates();
         startTimer();
     }
 
-    private void setupWindow() {
-        setTitle("Student Voting Portal - CEK");
-        setSize(800, 600);
-        setLocationRelativeTo(null);
-        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
-        getContentPane().setBackground(BACKGROUND_COLOR);
-        setLayout(new BorderLayout(15, 15));
+    /**
+     * Ends the session and tells whoever opened it, which moves on to the next screen.
+     */
+    private void finish(boolean timedOut) {
+        stopTimer();
+        Listener done = listener;
+        listener = null;
+        claim = null;
+        if (done != null) {
+            done.votingFinished(timedOut);
+        }
+    }
 
-        addWindowListener(new WindowAdapter() {
-            @Override
-            public void windowClosing(WindowEvent e) {
-                showWarning("Please complete your vote or wait for the timer to expire.");
-            }
-        });
+    @Override
+    public String getTitle() {
+        return "Student Voting Portal - CEK";
+    }
+
+    @Override
+    public void onShow() {
+        db.reopen();
+    }
+
+    @Override
+    public void onHide() {
+        // Whatever path leaves the ballot, its countdown and pending loads go with it
+        stopTimer();
+        db.cancelAll();
+    }
+
+    /**
+     * The kiosk window can't be closed in the middle of a ballot.
+     */
+    @Override
+    public boolean confirmClose() {
+        showWarning("Please complete your vote or wait for the timer to expire.");
+        return false;
     }
 
     private void setupUI() {
@@ -77,7 +157,6 @@ public class StudentVotingPage extends JFrame {
         titleLabel.setFont(TITLE_FONT);
         titleLabel.setForeground(Color.WHITE);
         
-        JLabel studentInfoLabel = new JLabel("Student ID: " + studentId);
         studentInfoLabel.setFont(HEADER_FONT);
         studentInfoLabel.setForeground(Color.WHITE);
         
@@ -153,18 +232,60 @@ public class StudentVotingPage extends JFrame {
     }
 
     private void loadCandidates() {
-        try (Connection con = DBConnection.getConnection();
-             Statement st = con.createStatement();
-             ResultSet rs = st.executeQuery("SELECT candidate_id, name FROM candidate")) {
-            
-            while (rs.next()) {
-                int candidateId = rs.getInt("candidate_id");
-                String name = rs.getString("name");
-                addCandidateCard(candidateId, name);
-            }
-        } catch (Exception e) {
+        VotingEvents.CandidateLoad event = new VotingEvents.CandidateLoad();
+        event.setStudent(studentId);
+        event.begin();
+
+        // Usually the cards from the last voter are still current
+        CandidateSnapshot cached = CandidateSnapshot.peek();
+        if (cached != null) {
+            showCandidates(cached);
+            event.candidateCount = cached.size();
+            event.commit();
+            return;
+        }
+
+        if (loadingLabel == null) {
+            clearCandidates();
+            loadingLabel = new JLabel("Loading candidates...", SwingConstants.CENTER);
+            loadingLabel.setFont(NORMAL_FONT);
+            loadingLabel.setForeground(TEXT_COLOR);
+            candidatesPanel.add(loadingLabel);
+        }
+
+        db.watch(CandidateSnapshot.get(), snapshot -> {
+            showCandidates(snapshot);
+            event.candidateCount = snapshot.size();
+            event.commit();
+        }, e -> {
+            event.failed = true;
+            event.commit();
             showError("Error loading candidates: " + e.getMessage());
+        });
+    }
+
+    /**
+     * Lays out one card per candidate, unless the cards already show this snapshot.
+     */
+    private void showCandidates(CandidateSnapshot snapshot) {
+        if (snapshot == shownCandidates) {
+            return;
         }
+        clearCandidates();
+        for (int i = 0; i < snapshot.size(); i++) {
+            addCandidateCard(snapshot.getId(i), snapshot.getName(i));
+        }
+        shownCandidates = snapshot;
+        candidatesPanel.revalidate();
+        candidatesPanel.repaint();
+    }
+
+    private void clearCandidates() {
+        candidatesPanel.removeAll();
+        buttonToCandidateMap.clear();
+        selectedCandidates.clear();
+        shownCandidates = null;
+        loadingLabel = null;
     }
 
     private void addCandidateCard(int candidateId, String name) {
@@ -256,75 +377,51 @@ public class StudentVotingPage extends JFrame {
     }
 
     private void castVotes() {
-        try (Connection con = DBConnection.getConnection()) {
-            con.setAutoCommit(false);
-            try {
-                // Update votes for selected candidates
-                for (int candidateId : selectedCandidates) {
-                    try (PreparedStatement ps = con.prepareStatement(
-                            "UPDATE candidate SET votes = votes + 1 WHERE candidate_id = ?")) {
-                        ps.setInt(1, candidateId);
-                        ps.executeUpdate();
-                    }
-                }
-
-                // Update student status
-                try (PreparedStatement ps = con.prepareStatement(
-                        "UPDATE student SET status = 'voted' WHERE student_id = ?")) {
-                    ps.setString(1, studentId);
-                    ps.executeUpdate();
-                }
-
-                // Update total votes
-                try (PreparedStatement ps = con.prepareStatement(
-                        "UPDATE super_admin SET total_votes = total_votes + 1 WHERE super_id = 1")) {
-                    ps.executeUpdate();
-                }
-
-                con.commit();
-                showSuccess("Your votes have been cast successfully!");
-                stopTimer();
-                dispose();
-                // Return to Admin Dashboard after voting completes
-                new AdminDashboard().setVisible(true);
-
-            } catch (SQLException e) {
-                con.rollback();
-                throw e;
+        // Hold the countdown while the ballot is being committed
+        stopTimer();
+        List<Integer> ballot = new ArrayList<>(selectedCandidates);
+
+        // Queued for group commit; the future completes once the ballot's batch has committed
+        db.watch(VoteStore.getInstance().castBallot(ballotId, studentId, ballot), outcome -> {
+            if (outcome == BallotOutcome.ACCEPTED || outcome == BallotOutcome.RECORDED_OFFLINE) {
+                showSuccess(outcome.getMessage());
+            } else {
+                // Nothing to retry here; the session is over either way
+                releaseClaim();
+                showError(outcome.getMessage());
             }
-        } catch (Exception e) {
-            showError("Error casting votes: " + e.getMessage());
-        }
+            // Back to the Admin Dashboard for the next voter
+            finish(false);
+        }, e -> {
+            // Same ballot id on the next try, so it's safe even if this one actually committed
+            showError("Error casting votes: " + e.getMessage() + "\nPlease select again to retry.");
+            startTimer();
+        }, buttonToCandidateMap.keySet().toArray(new JButton[0]));
     }
 
     private void startTimer() {
-        timer = new Timer();
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                SwingUtilities.invokeLater(() -> {
-                    timeLeft--;
-                    timerLabel.setText("Time Left: " + timeLeft + "s");
-                    timeProgressBar.setValue(timeLeft);
-
-                    if (timeLeft <= 10) {
-                        timerLabel.setForeground(WARNING_COLOR);
-                        timeProgressBar.setForeground(WARNING_COLOR);
-                    }
-
-                    if (timeLeft <= 0) {
-                        stopTimer();
-                        showTimeout();
-                    }
-                });
+        stopTimer();
+        countdown = Scheduler.every("ballot-countdown", Scheduler.Mode.EDT, 1, 1, TimeUnit.SECONDS, () -> {
+            timeLeft--;
+            timerLabel.setText("Time Left: " + timeLeft + "s");
+            timeProgressBar.setValue(timeLeft);
+
+            if (timeLeft <= 10) {
+                timerLabel.setForeground(WARNING_COLOR);
+                timeProgressBar.setForeground(WARNING_COLOR);
             }
-        }, 1000, 1000);
+
+            if (timeLeft <= 0) {
+                stopTimer();
+                showTimeout();
+            }
+        });
     }
 
     private void stopTimer() {
-        if (timer != null) {
-            timer.cancel();
-            timer = null;
+        if (countdown != null) {
+            countdown.cancel();
+            countdown = null;
         }
     }
 
@@ -336,12 +433,31 @@ public class StudentVotingPage extends JFrame {
     }
 
     private void showTimeout() {
+        releaseClaim();
         JOptionPane.showMessageDialog(this,
             "Time's up! Voting session has expired.",
             "Session Expired",
             JOptionPane.WARNING_MESSAGE);
-        dispose();
-        new LoginPage().setVisible(true);
+        finish(true);
+    }
+
+    /**
+     * Lets the student start again right away instead of waiting out the lease.
+     * Not tied to this window's scope: the page moves on to the next voter.
+     */
+    private void releaseClaim() {
+        VoterClaim held = claim;
+        if (held == null) {
+            return;
+        }
+        DBExecutor.submit(() -> {
+            VoteStore.getInstance().releaseClaim(held);
+            return null;
+        }).exceptionally(e -> {
+            // The lease still expires on its own
+            System.err.println("Could not release claim for " + held.getStudentId() + ": " + DBExecutor.unwrap(e).getMessage());
+            return null;
+        });
     }
 
     private void showWarning(String message) {
@@ -373,7 +489,8 @@ public class StudentVotingPage extends JFrame {
         }
 
         SwingUtilities.invokeLater(() -> {
-            new StudentVotingPage("STU001").setVisible(true);
+            AppShell.getInstance().get(StudentVotingPage.class, StudentVotingPage::new)
+                .open("STU001", null, timedOut -> System.exit(0));
         });
     }
 }
\ No newline at end of file
@@ -1,10 +1,15 @@
 import java.awt.*;
 import java.awt.event.*;
-import java.sql.*;
+import java.io.File;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.*;
 import javax.swing.table.*;
 
-public class SuperAdminDashboard extends JFrame {
+public class SuperAdminDashboard extends JPanel implements AppShell.Screen {
     private JTextField adminUserField, studentIdField;
     private JPasswordField adminPassField;
     private JComboBox<String> adminAssignBox;
@@ -12,7 +17,16 @@ public class SuperAdminDashboard extends JFrame {
     private JTable dataTable;
     private JTextArea bulkStudentsArea;
     private JButton bulkAddBtn;
+    private JButton importCsvBtn, cancelImportBtn;
+    private JProgressBar importProgress;
+    private CompletableFuture<StudentImporter.Result> importTask;
+    private volatile StudentImporter.Result lastImportProgress;
     private JButton startElectionBtn, endElectionBtn;
+    private JTextField searchField;
+    private JComboBox<String> statusFilter, adminFilter;
+    private boolean refillingAdminFilter = false;
+    private final DBExecutor.Scope db = DBExecutor.scopeFor(AppShell.getInstance());
+    private final VoteStore store = VoteStore.getInstance();
 
     // Colors (same as LoginPage)
     private static final Color PRIMARY_COLOR = new Color(70, 130, 180);
@@ -20,11 +34,7 @@ public class SuperAdminDashboard extends JFrame {
     private static final Color ACCENT_COLOR = new Color(25, 25, 112);
 
     public SuperAdminDashboard() {
-        setTitle("Super Admin Dashboard - College Voting System");
-        setSize(900, 600);
-        setLocationRelativeTo(null);
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
-        getContentPane().setBackground(SECONDARY_COLOR);
+        setBackground(SECONDARY_COLOR);
         setLayout(new BorderLayout(10, 10));
 
         // Header
@@ -91,8 +101,45 @@ public class SuperAdminDashboard extends JFrame {
 
         // Table Section (Right)
         dataTable = new JTable();
+        // Student grid sorts server-side; header clicks go to the paged model
+        dataTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (dataTable.getModel() instanceof PagedStudentTableModel) {
+                    PagedStudentTableModel model = (PagedStudentTableModel) dataTable.getModel();
+                    model.sortBy(dataTable.columnAtPoint(e.getPoint()));
+                    for (int i = 0; i < dataTable.getColumnCount(); i++) {
+                        dataTable.getColumnModel().getColumn(i).setHeaderValue(model.getColumnName(i));
+                    }
+                    dataTable.getTableHeader().repaint();
+                }
+            }
+        });
         JScrollPane scrollPane = new JScrollPane(dataTable);
-        add(scrollPane, BorderLayout.CENTER);
+
+        // Student search: filters are pushed down to the store and the grid pages in the matches
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchPanel.setBackground(SECONDARY_COLOR);
+        searchField = new JTextField(12);
+        statusFilter = new JComboBox<>(new String[] { "Any status", "not_voted", "voted" });
+        adminFilter = new JComboBox<>(new String[] { "Any admin" });
+        searchPanel.add(new JLabel("Student ID starts with:"));
+        searchPanel.add(searchField);
+        searchPanel.add(statusFilter);
+        searchPanel.add(adminFilter);
+        SearchDebouncer.attach(searchField, this::applyStudentSearch);
+        statusFilter.addActionListener(e -> applyStudentSearch());
+        adminFilter.addActionListener(e -> applyStudentSearch());
+
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(searchPanel, BorderLayout.NORTH);
+        tablePanel.add(scrollPane, BorderLayout.CENTER);
+
+        // Query latency, pool and journal counters; refreshes only while selected
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Admins & Students", tablePanel);
+        tabs.addTab("Diagnostics", new DiagnosticsPanel());
+        add(tabs, BorderLayout.CENTER);
 
         // Bottom Panel
         JPanel bottomPanel = new JPanel();
@@ -117,7 +164,19 @@ public class SuperAdminDashboard extends JFrame {
     JScrollPane bulkScroll = new JScrollPane(bulkStudentsArea);
     bulkPanel.add(bulkScroll, BorderLayout.CENTER);
     bulkAddBtn = createButton("Add Bulk Students");
-    bulkPanel.add(bulkAddBtn, BorderLayout.SOUTH);
+    importCsvBtn = createButton("Import CSV File...");
+    cancelImportBtn = createButton("Cancel Import");
+    cancelImportBtn.setEnabled(false);
+    importProgress = new JProgressBar(0, 100);
+    importProgress.setStringPainted(true);
+    importProgress.setString("No import running");
+    JPanel bulkActions = new JPanel(new GridLayout(0, 1, 5, 5));
+    bulkActions.setBackground(Color.WHITE);
+    bulkActions.add(bulkAddBtn);
+    bulkActions.add(importCsvBtn);
+    bulkActions.add(importProgress);
+    bulkActions.add(cancelImportBtn);
+    bulkPanel.add(bulkActions, BorderLayout.SOUTH);
 
     // Election control panel
     JPanel electionPanel = new JPanel(new GridLayout(1,2,10,10));
@@ -142,6 +201,8 @@ public class SuperAdminDashboard extends JFrame {
         viewAdminsBtn.addActionListener(e -> loadTable("admin"));
         viewStudentsBtn.addActionListener(e -> loadTable("student"));
     bulkAddBtn.addActionListener(e -> bulkAddStudents());
+    importCsvBtn.addActionListener(e -> importCsvFile());
+    cancelImportBtn.addActionListener(e -> cancelImport());
     startElectionBtn.addActionListener(e -> setElectionActive(true));
     endElectionBtn.addActionListener(e -> setElectionActive(false));
 
@@ -151,42 +212,75 @@ public class SuperAdminDashboard extends JFrame {
         logoutBtn.addActionListener(e -> logout());
         bottomPanel.add(logoutBtn);
 
+        ensureElectionTableExists();
+    }
+
+    @Override
+    public String getTitle() {
+        return "Super Admin Dashboard - College Voting System";
+    }
+
+    /**
+     * Reloads the lists on every login; another admin may have changed them meanwhile.
+     */
+    @Override
+    public void onShow() {
+        db.reopen();
         loadAdminDropdown();
         loadTable("admin"); // Show admin list by default
-        ensureElectionTableExists();
+    }
+
+    /**
+     * Logging out stops a running import and every other query, as closing the old window did.
+     */
+    @Override
+    public void onHide() {
+        cancelImport();
+        db.cancelAll();
     }
 
     /**
      * Ensure election_status table exists and has a single row (id=1).
      */
     private void ensureElectionTableExists() {
-        try (Connection con = DBConnection.getConnection();
-             Statement st = con.createStatement()) {
-
-            st.executeUpdate("CREATE TABLE IF NOT EXISTS election_status (id INT PRIMARY KEY, active TINYINT(1))");
-            // ensure a row exists
-            try (PreparedStatement ps = con.prepareStatement("INSERT INTO election_status(id, active) SELECT 1, 0 WHERE NOT EXISTS (SELECT 1 FROM election_status WHERE id=1)")) {
-                ps.executeUpdate();
-            }
-
-        } catch (SQLException e) {
-            showError("Error ensuring election table: " + e.getMessage());
-        }
+        db.submit(() -> {
+            store.ensureElectionStatus();
+            return null;
+        }, done -> { }, e -> showError("Error ensuring election table: " + e.getMessage()));
     }
 
     private void setElectionActive(boolean active) {
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement ps = con.prepareStatement("UPDATE election_status SET active = ? WHERE id = 1")) {
-            ps.setInt(1, active ? 1 : 0);
-            int updated = ps.executeUpdate();
-            if (updated > 0) {
+        db.submit(() -> store.setElectionActive(active), updated -> {
+            if (updated) {
                 showSuccess("Election " + (active ? "started" : "ended") + " successfully.");
             } else {
                 showError("Failed to update election status.");
             }
-        } catch (SQLException e) {
-            showError("Error updating election status: " + e.getMessage());
+        }, e -> showError("Error updating election status: " + e.getMessage()),
+            startElectionBtn, endElectionBtn);
+    }
+
+    /**
+     * Re-filters the student grid; the model cancels whatever the previous search was still loading.
+     */
+    private void applyStudentSearch() {
+        if (refillingAdminFilter) {
+            return;
+        }
+        if (!(dataTable.getModel() instanceof PagedStudentTableModel)) {
+            loadTable("student");
+            return;
         }
+        applyStudentFilter((PagedStudentTableModel) dataTable.getModel());
+    }
+
+    /**
+     * Narrows the model to what the search field and filter boxes currently say, and reloads it.
+     */
+    private void applyStudentFilter(PagedStudentTableModel model) {
+        String status = statusFilter.getSelectedIndex() > 0 ? (String) statusFilter.getSelectedItem() : null;
+        String admin = adminFilter.getSelectedIndex() > 0 ? (String) adminFilter.getSelectedItem() : null;
+        model.setFilter(searchField.getText(), status, admin);
     }
 
     private void bulkAddStudents() {
@@ -195,33 +289,68 @@ public class SuperAdminDashboard extends JFrame {
             showError("Please paste student IDs (one per line) into the bulk area.");
             return;
         }
+        runImport(new StringReader(text), text.length(), "pasted list");
+    }
 
-        String[] lines = text.split("\\r?\\n");
-        int added = 0;
-        int skipped = 0;
-
-        try (Connection con = DBConnection.getConnection()) {
-            con.setAutoCommit(false);
-            try (PreparedStatement ps = con.prepareStatement("INSERT INTO student(student_id, status) VALUES (?, 'not_voted')")) {
-                for (String raw : lines) {
-                    String id = raw.trim();
-                    if (id.isEmpty()) continue;
-                    try {
-                        ps.setString(1, id);
-                        ps.executeUpdate();
-                        added++;
-                    } catch (SQLException ex) {
-                        // likely duplicate primary key; skip
-                        skipped++;
-                    }
-                }
+    /**
+     * Imports a roster file: student_id[,admin_username[,status]] per line; status must be not_voted.
+     */
+    private void importCsvFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Select student roster (CSV)");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        try {
+            runImport(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8), file.length(), file.getName());
+        } catch (java.io.IOException e) {
+            showError("Cannot open " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void runImport(Reader source, long totalChars, String sourceName) {
+        lastImportProgress = null;
+        importProgress.setValue(0);
+        importProgress.setString("Importing " + sourceName + "...");
+        cancelImportBtn.setEnabled(true);
+
+        importTask = db.submit(() -> {
+            try (Reader in = source) {
+                return store.importStudents(in, (soFar, charsRead) -> {
+                    lastImportProgress = soFar;
+                    int pct = totalChars > 0 ? (int) Math.min(100, charsRead * 100 / totalChars) : 0;
+                    SwingUtilities.invokeLater(() -> {
+                        importProgress.setValue(pct);
+                        importProgress.setString(pct + "% - " + soFar);
+                    });
+                });
+            } catch (java.io.IOException e) {
+                throw new java.io.IOException("Error reading " + sourceName + ": " + e.getMessage(), e);
             }
-            con.commit();
-            showSuccess(String.format("Bulk import finished: %d added, %d skipped." , added, skipped));
+        }, result -> {
+            cancelImportBtn.setEnabled(false);
+            importProgress.setValue(100);
+            importProgress.setString("Done - " + result);
+            showSuccess("Bulk import finished: " + result + ".");
             loadTable("student");
-        } catch (SQLException e) {
+        }, e -> {
+            cancelImportBtn.setEnabled(false);
+            importProgress.setString("Import failed");
             showError("Error during bulk import: " + e.getMessage());
+        }, bulkAddBtn, importCsvBtn, bulkStudentsArea);
+    }
+
+    private void cancelImport() {
+        if (importTask == null || importTask.isDone()) {
+            return;
         }
+        // Interrupts the worker; the importer stops after the chunk in flight
+        importTask.cancel(true);
+        cancelImportBtn.setEnabled(false);
+        StudentImporter.Result partial = lastImportProgress;
+        importProgress.setString("Cancelled" + (partial != null ? " - " + partial : ""));
+        loadTable("student");
     }
 
     private JButton createButton(String text) {
@@ -254,19 +383,17 @@ public class SuperAdminDashboard extends JFrame {
             return;
         }
 
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement ps = con.prepareStatement("INSERT INTO admin(username, password) VALUES(?, ?)")) {
-            ps.setString(1, username);
-            ps.setString(2, password);
-            ps.executeUpdate();
+        db.submit(() -> {
+            store.addAdmin(username, password);
+            return null;
+        }, done -> {
             showSuccess("Admin added successfully!");
             adminUserField.setText("");
             adminPassField.setText("");
             loadAdminDropdown();
             loadTable("admin"); // Refresh the table
-        } catch (SQLException e) {
-            showError("Error adding admin: " + e.getMessage());
-        }
+        }, e -> showError("Error adding admin: " + e.getMessage()),
+            addAdminBtn);
     }
 
     private void addStudent() {
@@ -278,64 +405,17 @@ public class SuperAdminDashboard extends JFrame {
             return;
         }
 
-        Connection con = null;
-        try {
-            con = DBConnection.getConnection();
-            con.setAutoCommit(false);
-
-            // First check if student already exists
-            try (PreparedStatement checkPs = con.prepareStatement("SELECT student_id FROM student WHERE student_id = ?")) {
-                checkPs.setString(1, studentId);
-                if (checkPs.executeQuery().next()) {
-                    showError("Student ID already exists!");
-                    return;
-                }
-            }
-
-            // Get admin ID
-            int adminId;
-            try (PreparedStatement psAdmin = con.prepareStatement("SELECT admin_id FROM admin WHERE username = ?")) {
-                psAdmin.setString(1, adminName);
-                ResultSet rs = psAdmin.executeQuery();
-                if (!rs.next()) {
-                    showError("Selected admin not found!");
-                    return;
-                }
-                adminId = rs.getInt("admin_id");
-            }
-
-            // Add student
-            try (PreparedStatement ps = con.prepareStatement(
-                    "INSERT INTO student(student_id, admin_id, status) VALUES (?, ?, 'not_voted')")) {
-                ps.setString(1, studentId);
-                ps.setInt(2, adminId);
-                ps.executeUpdate();
+        // Returns null on success, otherwise the message to show
+        db.submit(() -> store.addStudent(studentId, adminName), problem -> {
+            if (problem != null) {
+                showError(problem);
+                return;
             }
-
-            con.commit();
             showSuccess("Student added successfully!");
             studentIdField.setText("");
             loadTable("student"); // Refresh the table
-
-        } catch (SQLException e) {
-            if (con != null) {
-                try {
-                    con.rollback();
-                } catch (SQLException ex) {
-                    showError("Error rolling back transaction: " + ex.getMessage());
-                }
-            }
-            showError("Error adding student: " + e.getMessage());
-        } finally {
-            if (con != null) {
-                try {
-                    con.setAutoCommit(true);
-                    con.close();
-                } catch (SQLException e) {
-                    showError("Error closing connection: " + e.getMessage());
-                }
-            }
-        }
+        }, e -> showError("Error adding student: " + e.getMessage()),
+            addStudentBtn);
     }
 
     private void showSuccess(String message) {
@@ -346,16 +426,23 @@ public class SuperAdminDashboard extends JFrame {
     }
 
     private void loadAdminDropdown() {
-        adminAssignBox.removeAllItems();
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement st = con.prepareStatement("SELECT username FROM admin ORDER BY username");
-             ResultSet rs = st.executeQuery()) {
-            while (rs.next()) {
-                adminAssignBox.addItem(rs.getString("Username"));
+        db.submit(store::listAdminUsernames, names -> {
+            adminAssignBox.removeAllItems();
+            for (String name : names) {
+                adminAssignBox.addItem(name);
             }
-        } catch (SQLException e) {
-            showError("Error loading admin list: " + e.getMessage());
-        }
+            // Refilling fires action events; don't treat them as a search
+            refillingAdminFilter = true;
+            Object selected = adminFilter.getSelectedItem();
+            adminFilter.removeAllItems();
+            adminFilter.addItem("Any admin");
+            for (String name : names) {
+                adminFilter.addItem(name);
+            }
+            adminFilter.setSelectedItem(selected);
+            refillingAdminFilter = false;
+        }, e -> showError("Error loading admin list: " + e.getMessage()),
+            adminAssignBox);
     }
 
     private void loadTable(String table) {
@@ -365,67 +452,50 @@ public class SuperAdminDashboard extends JFrame {
             return;
         }
 
-        String query = table.equals("admin") ? 
-            "SELECT admin_id AS ID, username AS Username FROM admin" :
-            "SELECT student_id AS ID, status AS Status, admin_id AS 'Admin ID' FROM student";
-
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement st = con.prepareStatement(query);
-             ResultSet rs = st.executeQuery()) {
-
-            ResultSetMetaData meta = rs.getMetaData();
-            int columnCount = meta.getColumnCount();
-
-            // Get column names
-            String[] columnNames = new String[columnCount];
-            for (int i = 1; i <= columnCount; i++) {
-                columnNames[i - 1] = meta.getColumnName(i);
-            }
-
-            // Get data
-            java.util.List<String[]> data = new java.util.ArrayList<>();
-            while (rs.next()) {
-                String[] row = new String[columnCount];
-                for (int i = 1; i <= columnCount; i++) {
-                    row[i - 1] = rs.getString(i);
-                }
-                data.add(row);
-            }
+        if (table.equals("student")) {
+            // The roster can be huge: page it in as the table scrolls instead of loading it all
+            PagedStudentTableModel model = new PagedStudentTableModel(db, store);
+            dataTable.setModel(model);
+            styleTable();
+            // Keep whatever search is active, e.g. when refreshing after an add or import
+            applyStudentFilter(model);
+            return;
+        }
 
-            // Convert List to array
-            // Create and set new table model with non-editable cells
-            DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
+        db.submit(() -> {
+            // Create the model with non-editable cells; it isn't attached to the table yet,
+            // so filling it here off the EDT is safe
+            DefaultTableModel model = new DefaultTableModel(new String[] { "ID", "Username" }, 0) {
                 @Override
                 public boolean isCellEditable(int row, int column) {
                     return false;
                 }
             };
-
-            // Add rows to model
-            for (String[] rowData : data) {
-                model.addRow(rowData);
+            for (Object[] admin : store.listAdmins()) {
+                model.addRow(new String[] { String.valueOf(admin[0]), (String) admin[1] });
             }
-            
+            return model;
+        }, model -> {
             dataTable.setModel(model);
+            styleTable();
+        }, e -> showError("Error loading data: " + e.getMessage()),
+            viewAdminsBtn, viewStudentsBtn);
+    }
 
-            // Style the table
-            dataTable.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-            dataTable.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 14));
-            dataTable.getTableHeader().setBackground(PRIMARY_COLOR);
-            dataTable.getTableHeader().setForeground(Color.BLACK);
-            dataTable.setRowHeight(30);
-            dataTable.setShowGrid(true);
-            dataTable.setGridColor(new Color(230, 230, 230));
-            
-            // Center-align all columns
-            DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer();
-            centerRenderer.setHorizontalAlignment(SwingConstants.CENTER);
-            for (int i = 0; i < dataTable.getColumnCount(); i++) {
-                dataTable.getColumnModel().getColumn(i).setCellRenderer(centerRenderer);
-            }
-
-        } catch (SQLException e) {
-            showError("Error loading data: " + e.getMessage());
+    private void styleTable() {
+        dataTable.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        dataTable.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 14));
+        dataTable.getTableHeader().setBackground(PRIMARY_COLOR);
+        dataTable.getTableHeader().setForeground(Color.BLACK);
+        dataTable.setRowHeight(30);
+        dataTable.setShowGrid(true);
+        dataTable.setGridColor(new Color(230, 230, 230));
+
+        // Center-align all columns
+        DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer();
+        centerRenderer.setHorizontalAlignment(SwingConstants.CENTER);
+        for (int i = 0; i < dataTable.getColumnCount(); i++) {
+            dataTable.getColumnModel().getColumn(i).setCellRenderer(centerRenderer);
         }
     }
 
@@ -437,8 +507,7 @@ public class SuperAdminDashboard extends JFrame {
     }
     
     private void logout() {
-        dispose();
-        new LoginPage().setVisible(true);
+        AppShell.getInstance().show(LoginPage.class, LoginPage::new);
     }
 
     public static void main(String[] args) {
@@ -451,9 +520,6 @@ public class SuperAdminDashboard extends JFrame {
                 JOptionPane.ERROR_MESSAGE);
         }
         
-        SwingUtilities.invokeLater(() -> {
-            SuperAdminDashboard dashboard = new SuperAdminDashboard();
-            dashboard.setVisible(true);
-        });
+        SwingUtilities.invokeLater(() -> AppShell.getInstance().show(SuperAdminDashboard.class, SuperAdminDashboard::new));
     }
 }
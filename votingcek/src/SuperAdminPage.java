@@ -1,5 +1,5 @@
 import java.awt.*;
-import java.sql.*;
+import java.util.List;
 import javax.swing.*;
 
 public class SuperAdminPage extends JFrame {
@@ -7,6 +7,11 @@ public class SuperAdminPage extends JFrame {
     JTextField studentIdField, assignAdminIdField;
     JTextArea outputArea;
     JButton addAdminBtn, addStudentBtn, viewAdminsBtn, viewStudentsBtn;
+    JTextField searchField;
+    private static final int SEARCH_LIMIT = 500;
+    private java.util.concurrent.CompletableFuture<String> pendingSearch;
+    private final DBExecutor.Scope db = DBExecutor.scopeFor(this);
+    private final VoteStore store = VoteStore.getInstance();
 
     public SuperAdminPage() {
         setTitle("Super Admin Dashboard");
@@ -55,6 +60,10 @@ public class SuperAdminPage extends JFrame {
         viewStudentsBtn = new JButton("View All Students");
         bottomPanel.add(viewAdminsBtn);
         bottomPanel.add(viewStudentsBtn);
+        bottomPanel.add(new JLabel("Find Student ID:"));
+        searchField = new JTextField(10);
+        bottomPanel.add(searchField);
+        SearchDebouncer.attach(searchField, this::searchStudents);
         add(bottomPanel, BorderLayout.SOUTH);
 
         // Output area
@@ -77,15 +86,12 @@ public class SuperAdminPage extends JFrame {
             return;
         }
 
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement ps = con.prepareStatement("INSERT INTO admin(username, password) VALUES (?, ?)")) {
-            ps.setString(1, username);
-            ps.setString(2, password);
-            ps.executeUpdate();
-            JOptionPane.showMessageDialog(this, "Admin added successfully!");
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage());
-        }
+        db.submit(() -> {
+            store.addAdmin(username, password);
+            return null;
+        }, done -> JOptionPane.showMessageDialog(this, "Admin added successfully!"),
+            e -> JOptionPane.showMessageDialog(this, "Error: " + e.getMessage()),
+            addAdminBtn);
     }
 
     private void addStudent() {
@@ -97,44 +103,64 @@ public class SuperAdminPage extends JFrame {
             return;
         }
 
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement ps = con.prepareStatement(
-                     "INSERT INTO student(student_id, status, admin_id) VALUES (?, 'not_voted', ?)")) {
-            ps.setString(1, studentId);
-            ps.setInt(2, Integer.parseInt(adminIdText));
-            ps.executeUpdate();
-            JOptionPane.showMessageDialog(this, "Student added and assigned to Admin ID " + adminIdText);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage());
-        }
+        db.submit(() -> {
+            store.addStudent(studentId, Integer.parseInt(adminIdText));
+            return null;
+        }, done -> JOptionPane.showMessageDialog(this, "Student added and assigned to Admin ID " + adminIdText),
+            e -> JOptionPane.showMessageDialog(this, "Error: " + e.getMessage()),
+            addStudentBtn);
     }
 
     private void viewAdmins() {
-        outputArea.setText("List of Admins:\n-----------------\n");
-        try (Connection con = DBConnection.getConnection();
-             Statement st = con.createStatement();
-             ResultSet rs = st.executeQuery("SELECT admin_id, username FROM admin")) {
-            while (rs.next()) {
-                outputArea.append("Admin ID: " + rs.getInt("admin_id") + 
-                                  " | Username: " + rs.getString("username") + "\n");
+        outputArea.setText("Loading admins...\n");
+        db.submit(() -> {
+            StringBuilder sb = new StringBuilder("List of Admins:\n-----------------\n");
+            for (Object[] admin : store.listAdmins()) {
+                sb.append("Admin ID: ").append(admin[0])
+                  .append(" | Username: ").append(admin[1]).append("\n");
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+            return sb.toString();
+        }, outputArea::setText, Throwable::printStackTrace, viewAdminsBtn, viewStudentsBtn);
     }
 
     private void viewStudents() {
-        outputArea.setText("List of Students:\n-----------------\n");
-        try (Connection con = DBConnection.getConnection();
-             Statement st = con.createStatement();
-             ResultSet rs = st.executeQuery("SELECT student_id, status, admin_id FROM student")) {
-            while (rs.next()) {
-                outputArea.append("Student ID: " + rs.getString("student_id") + 
-                                  " | Status: " + rs.getString("status") +
-                                  " | Admin ID: " + rs.getInt("admin_id") + "\n");
+        outputArea.setText("Loading students...\n");
+        db.submit(() -> {
+            StringBuilder sb = new StringBuilder("List of Students:\n-----------------\n");
+            appendStudents(sb, store.listStudents());
+            return sb.toString();
+        }, outputArea::setText, Throwable::printStackTrace, viewAdminsBtn, viewStudentsBtn);
+    }
+
+    /**
+     * Prefix search on student_id (primary key range scan), capped at SEARCH_LIMIT rows.
+     */
+    private void searchStudents() {
+        String prefix = searchField.getText().trim();
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
+        }
+        if (prefix.isEmpty()) {
+            outputArea.setText("");
+            return;
+        }
+        outputArea.setText("Searching...\n");
+        pendingSearch = db.submit(() -> {
+            StringBuilder sb = new StringBuilder("Students matching '" + prefix + "':\n-----------------\n");
+            List<Object[]> found = store.searchStudents(prefix, SEARCH_LIMIT + 1);
+            appendStudents(sb, found.subList(0, Math.min(found.size(), SEARCH_LIMIT)));
+            if (found.size() > SEARCH_LIMIT) {
+                sb.append("... more than ").append(SEARCH_LIMIT).append(" matches, keep typing to narrow down\n");
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            return sb.toString();
+        }, outputArea::setText, Throwable::printStackTrace);
+    }
+
+    private static void appendStudents(StringBuilder sb, List<Object[]> students) {
+        for (Object[] s : students) {
+            sb.append("Student ID: ").append(s[0])
+              .append(" | Status: ").append(s[1])
+              .append(" | Admin ID: ").append(s[2]).append("\n");
         }
     }
 
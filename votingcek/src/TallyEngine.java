@@ -0,0 +1,178 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains candidate_tally as a materialized view of the ballot ledger.
+ *
+ * catchUp() folds ballots not yet in the tallies and records each one in
+ * ballot_fold in the same transaction, so readers get pre-aggregated rows,
+ * the fold is idempotent and the ledger itself stays insert-only. Ballot ids
+ * are AUTO_INCREMENT and can commit out of order (a batch may wait out a long
+ * lock wait after taking its ids), so the fold goes by what ballot_fold lacks
+ * rather than by a watermark over the ids. Ballots up to
+ * tally_state.last_ballot_id were counted when the tallies were seeded.
+ */
+public class TallyEngine {
+    private static final int FOLD_LIMIT = 5000;
+
+    private static volatile boolean schemaReady = false;
+
+    private TallyEngine() {
+    }
+
+    public static void ensureSchema(Connection con) throws SQLException {
+        if (schemaReady) {
+            return;
+        }
+        BallotLedger.ensureSchema(con);
+        VoteCounters.ensureSchema(con);
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS candidate_tally ("
+                + "candidate_id INT PRIMARY KEY, "
+                + "votes INT NOT NULL DEFAULT 0)");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS tally_state ("
+                + "id INT PRIMARY KEY, "
+                + "last_ballot_id BIGINT NOT NULL DEFAULT 0)");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS ballot_fold ("
+                + "ballot_id BIGINT PRIMARY KEY)");
+            // Per-position totals were never read and kept votes of deleted candidates
+            st.executeUpdate("DROP TABLE IF EXISTS position_tally");
+        }
+        moveFoldedFlags(con);
+        seedIfMissing(con);
+        schemaReady = true;
+    }
+
+    /**
+     * An earlier build kept fold progress in a folded column on the ledger;
+     * carry it over to ballot_fold and give the ledger its old shape back.
+     */
+    private static void moveFoldedFlags(Connection con) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT 1 FROM information_schema.columns "
+                 + "WHERE table_schema = DATABASE() AND table_name = 'ballot' AND column_name = 'folded'")) {
+            if (!rs.next()) {
+                return;
+            }
+        }
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("INSERT IGNORE INTO ballot_fold(ballot_id) SELECT ballot_id FROM ballot WHERE folded = 1");
+            st.executeUpdate("ALTER TABLE ballot DROP INDEX idx_ballot_folded, DROP COLUMN folded");
+        } catch (SQLException e) {
+            if (e.getErrorCode() != 1091 && e.getErrorCode() != 1054) { // another kiosk dropped it first
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * First run: start from the counters so votes cast before the ledger
+     * existed still show. Done in one transaction with every ballot writer
+     * held off (they all share-lock election_status), so the seed floor and
+     * the counter snapshot cover exactly the same ballots.
+     */
+    private static void seedIfMissing(Connection con) throws SQLException {
+        boolean autoCommit = con.getAutoCommit();
+        try (Statement st = con.createStatement()) {
+            con.setAutoCommit(false);
+            st.executeQuery("SELECT active FROM election_status WHERE id = 1 FOR UPDATE").close();
+            try (ResultSet rs = st.executeQuery("SELECT 1 FROM tally_state WHERE id = 1 FOR UPDATE")) {
+                if (rs.next()) {
+                    con.rollback();
+                    return;
+                }
+            }
+            st.executeUpdate("INSERT INTO tally_state(id, last_ballot_id) "
+                + "SELECT 1, COALESCE(MAX(ballot_id), 0) FROM ballot");
+            st.executeUpdate("INSERT IGNORE INTO candidate_tally(candidate_id, votes) "
+                + "SELECT c.candidate_id, " + VoteCounters.CANDIDATE_VOTES_SQL + " FROM candidate c");
+            con.commit();
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Folds any new ledger rows into the tallies. Cheap when nothing is new.
+     *
+     * @return number of ballots folded
+     */
+    public static synchronized int catchUp(Connection con) throws SQLException {
+        ensureSchema(con);
+        boolean autoCommit = con.getAutoCommit();
+        int total = 0;
+        QueryMetrics.Tag tag = QueryMetrics.tag("tally.fold");
+        try {
+            con.setAutoCommit(false);
+            int folded;
+            do {
+                folded = foldOnce(con);
+                con.commit();
+                total += folded;
+            } while (folded == FOLD_LIMIT);
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            tag.close();
+            con.setAutoCommit(autoCommit);
+        }
+        return total;
+    }
+
+    private static int foldOnce(Connection con) throws SQLException {
+        long floor;
+        // Row lock serializes tally engines running in different kiosks
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT last_ballot_id FROM tally_state WHERE id = 1 FOR UPDATE")) {
+            floor = rs.next() ? rs.getLong(1) : 0;
+        }
+
+        Map<Integer, Integer> increments = new TreeMap<>();
+        List<Long> folded = new ArrayList<>();
+        try (PreparedStatement ps = con.prepareStatement(
+                "SELECT b.ballot_id, b.candidate_ids FROM ballot b "
+                + "LEFT JOIN ballot_fold f ON f.ballot_id = b.ballot_id "
+                + "WHERE b.ballot_id > ? AND f.ballot_id IS NULL "
+                + "ORDER BY b.ballot_id LIMIT " + FOLD_LIMIT)) {
+            ps.setLong(1, floor);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    for (int candidateId : BallotLedger.decode(rs.getString("candidate_ids"))) {
+                        increments.merge(candidateId, 1, Integer::sum);
+                    }
+                    folded.add(rs.getLong("ballot_id"));
+                }
+            }
+        }
+        if (folded.isEmpty()) {
+            return 0;
+        }
+
+        // Sorted, so tally rows are always locked in the same order
+        try (PreparedStatement up = con.prepareStatement(
+                "INSERT INTO candidate_tally(candidate_id, votes) VALUES (?, ?) "
+                + "ON DUPLICATE KEY UPDATE votes = votes + VALUES(votes)")) {
+            for (Map.Entry<Integer, Integer> e : increments.entrySet()) {
+                up.setInt(1, e.getKey());
+                up.setInt(2, e.getValue());
+                up.addBatch();
+            }
+            up.executeBatch();
+        }
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO ballot_fold(ballot_id) VALUES (?)")) {
+            for (long id : folded) {
+                ps.setLong(1, id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        return folded.size();
+    }
+}
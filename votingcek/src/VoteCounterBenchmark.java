@@ -0,0 +1,152 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares ballots/sec for the old single-row counters against the sharded
+ * counters in VoteCounters, at increasing numbers of concurrent voters.
+ *
+ * Runs against scratch tables (bench_*) in a scratch database of its own,
+ * never the election database:
+ *   java -Dvoting.db.url=jdbc:mysql://localhost:3306/voting_bench -cp bin:lib/* \
+ *       VoteCounterBenchmark [seconds-per-run] [threads,threads,...]
+ * Each ballot borrows a pooled connection for its own transaction, like a
+ * kiosk does, so thread counts above the pool size queue for connections; a
+ * borrow that times out counts as an error instead of ending the run.
+ */
+public class VoteCounterBenchmark {
+    private static final int CANDIDATES = 4;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String[] threadArg = (args.length > 1 ? args[1] : "1,2,4,8").split(",");
+
+        ElectionBenchmark.requireScratchDatabase();
+        try (Connection con = DBConnection.getConnection()) {
+            setUp(con);
+        }
+
+        System.out.printf("%-8s %10s %14s %14s%n", "threads", "design", "ballots/sec", "errors");
+        try {
+            for (String t : threadArg) {
+                int threads = Integer.parseInt(t.trim());
+                for (boolean sharded : new boolean[] { false, true }) {
+                    Result r = run(threads, seconds, sharded);
+                    System.out.printf("%-8d %10s %14.1f %14d%n", threads,
+                        sharded ? "sharded" : "single", r.ballots / (double) seconds, r.errors);
+                }
+            }
+        } finally {
+            try (Connection con = DBConnection.getConnection();
+                 Statement st = con.createStatement()) {
+                st.executeUpdate("DROP TABLE IF EXISTS bench_candidate_shard");
+                st.executeUpdate("DROP TABLE IF EXISTS bench_total_shard");
+                st.executeUpdate("DROP TABLE IF EXISTS bench_candidate");
+                st.executeUpdate("DROP TABLE IF EXISTS bench_total");
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void setUp(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS bench_candidate (candidate_id INT PRIMARY KEY, votes INT NOT NULL DEFAULT 0)");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS bench_total (id INT PRIMARY KEY, total_votes INT NOT NULL DEFAULT 0)");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS bench_candidate_shard (candidate_id INT, slot TINYINT, votes INT NOT NULL DEFAULT 0, PRIMARY KEY (candidate_id, slot))");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS bench_total_shard (slot TINYINT PRIMARY KEY, votes INT NOT NULL DEFAULT 0)");
+            st.executeUpdate("DELETE FROM bench_candidate");
+            st.executeUpdate("DELETE FROM bench_total");
+            st.executeUpdate("DELETE FROM bench_candidate_shard");
+            st.executeUpdate("DELETE FROM bench_total_shard");
+            st.executeUpdate("INSERT INTO bench_total VALUES (1, 0)");
+            for (int i = 1; i <= CANDIDATES; i++) {
+                st.executeUpdate("INSERT INTO bench_candidate VALUES (" + i + ", 0)");
+            }
+        }
+    }
+
+    private static Result run(int threads, int seconds, boolean sharded) throws Exception {
+        LongAdder ballots = new LongAdder();
+        LongAdder errors = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            futures.add(pool.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    // Two candidates per ballot, like StudentVotingPage
+                    int a = ThreadLocalRandom.current().nextInt(CANDIDATES) + 1;
+                    int b = a % CANDIDATES + 1;
+                    try (Connection con = DBConnection.getBackgroundConnection("bench.vote")) {
+                        con.setAutoCommit(false);
+                        try {
+                            if (sharded) {
+                                castSharded(con, a, b);
+                            } else {
+                                castSingleRow(con, a, b);
+                            }
+                            con.commit();
+                            ballots.increment();
+                        } catch (SQLException e) {
+                            con.rollback();
+                            errors.increment();
+                        } finally {
+                            con.setAutoCommit(true);
+                        }
+                    } catch (SQLException e) {
+                        // No connection came free within the borrow timeout
+                        errors.increment();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+
+        Result r = new Result();
+        r.ballots = ballots.sum();
+        r.errors = errors.sum();
+        return r;
+    }
+
+    private static void castSingleRow(Connection con, int a, int b) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("UPDATE bench_candidate SET votes = votes + 1 WHERE candidate_id = ?")) {
+            ps.setInt(1, a);
+            ps.executeUpdate();
+            ps.setInt(1, b);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = con.prepareStatement("UPDATE bench_total SET total_votes = total_votes + 1 WHERE id = 1")) {
+            ps.executeUpdate();
+        }
+    }
+
+    private static void castSharded(Connection con, int a, int b) throws SQLException {
+        int slot = VoteCounters.pickSlot();
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO bench_candidate_shard(candidate_id, slot, votes) VALUES (?, ?, 1) "
+                + "ON DUPLICATE KEY UPDATE votes = votes + 1")) {
+            ps.setInt(2, slot);
+            ps.setInt(1, a);
+            ps.executeUpdate();
+            ps.setInt(1, b);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO bench_total_shard(slot, votes) VALUES (?, 1) ON DUPLICATE KEY UPDATE votes = votes + 1")) {
+            ps.setInt(1, slot);
+            ps.executeUpdate();
+        }
+    }
+
+    private static class Result {
+        long ballots;
+        long errors;
+    }
+}
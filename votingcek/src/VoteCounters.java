@@ -0,0 +1,79 @@
+import java.sql.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sharded vote counters.
+ *
+ * Instead of every ballot doing "votes = votes + 1" on the same candidate row
+ * (and on super_admin id 1), each ballot increments one of SHARDS slot rows
+ * picked at random, so concurrent kiosks rarely wait on the same row lock.
+ * Readers sum the slots. candidate.votes and super_admin.total_votes are kept
+ * as the base value so counts from before the shards existed still add up.
+ */
+public class VoteCounters {
+    public static final int SHARDS = 16;
+
+    /** Candidate totals: base column plus all slots. Alias with "c" for candidate. */
+    public static final String CANDIDATE_VOTES_SQL =
+        "(c.votes + COALESCE((SELECT SUM(s.votes) FROM candidate_vote_shard s WHERE s.candidate_id = c.candidate_id), 0))";
+
+    private static volatile boolean schemaReady = false;
+
+    private VoteCounters() {
+    }
+
+    public static void ensureSchema(Connection con) throws SQLException {
+        if (schemaReady) {
+            return;
+        }
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS candidate_vote_shard ("
+                + "candidate_id INT NOT NULL, "
+                + "slot TINYINT NOT NULL, "
+                + "votes INT NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (candidate_id, slot), "
+                + "FOREIGN KEY (candidate_id) REFERENCES candidate(candidate_id) ON DELETE CASCADE)");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS total_vote_shard ("
+                + "slot TINYINT PRIMARY KEY, "
+                + "votes INT NOT NULL DEFAULT 0)");
+        }
+        schemaReady = true;
+    }
+
+    /**
+     * Slot for one ballot. All increments of a ballot use the same slot.
+     */
+    public static int pickSlot() {
+        return ThreadLocalRandom.current().nextInt(SHARDS);
+    }
+
+    public static void addCandidateVotes(Connection con, int candidateId, int slot, int delta) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO candidate_vote_shard(candidate_id, slot, votes) VALUES (?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE votes = votes + VALUES(votes)")) {
+            ps.setInt(1, candidateId);
+            ps.setInt(2, slot);
+            ps.setInt(3, delta);
+            ps.executeUpdate();
+        }
+    }
+
+    public static void addTotalVotes(Connection con, int slot, int delta) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO total_vote_shard(slot, votes) VALUES (?, ?) "
+                + "ON DUPLICATE KEY UPDATE votes = votes + VALUES(votes)")) {
+            ps.setInt(1, slot);
+            ps.setInt(2, delta);
+            ps.executeUpdate();
+        }
+    }
+
+    public static long readTotalVotes(Connection con) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery(
+                 "SELECT COALESCE((SELECT total_votes FROM super_admin WHERE super_id = 1), 0) "
+                 + "+ COALESCE((SELECT SUM(votes) FROM total_vote_shard), 0)")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
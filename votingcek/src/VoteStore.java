@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Everything the screens read and write: admins, students, candidates,
+ * election status and ballots.
+ *
+ * JdbcVoteStore is the real MySQL-backed store; InMemoryVoteStore keeps
+ * everything in concurrent maps so the UI and the voting flow can run (and be
+ * load-tested) without a database. Pick one at startup with
+ * -Dvoting.store=jdbc (the default) or -Dvoting.store=memory.
+ *
+ * Methods block and must be called off the EDT, e.g. through DBExecutor.Scope.submit.
+ * Row-shaped results are Object[] in the column order given on each method.
+ */
+public interface VoteStore {
+
+    static VoteStore getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    // Admins
+
+    /**
+     * @return the admin's password ("" if it has none), or null if there is no such admin
+     */
+    String findAdminPassword(String username) throws SQLException;
+
+    /** Fails with an SQLIntegrityConstraintViolationException if the username is taken. */
+    void addAdmin(String username, String password) throws SQLException;
+
+    /** Usernames in alphabetical order. */
+    List<String> listAdminUsernames() throws SQLException;
+
+    /** Rows of {admin_id, username}. */
+    List<Object[]> listAdmins() throws SQLException;
+
+    // Students
+
+    /**
+     * Adds a not_voted student assigned to the named admin.
+     *
+     * @return null on success, otherwise the reason it wasn't added
+     */
+    String addStudent(String studentId, String adminUsername) throws SQLException;
+
+    /** Adds a not_voted student assigned to an admin by id. */
+    void addStudent(String studentId, int adminId) throws SQLException;
+
+    boolean studentExists(String studentId) throws SQLException;
+
+    /** Rows of {student_id, status, admin_id}. */
+    List<Object[]> listStudents() throws SQLException;
+
+    /** Up to limit rows of {student_id, status, admin_id} whose id starts with idPrefix, by id. */
+    List<Object[]> searchStudents(String idPrefix, int limit) throws SQLException;
+
+    int countStudents(StudentFilter filter) throws SQLException;
+
+    /**
+     * One page of the student grid, sorted by column (0 id, 1 status, 2 admin id) then student_id.
+     * afterKey, if known, is {sort key, student_id} of the row just before the page.
+     *
+     * @return rows of {student_id, status, admin_id, sort key}
+     */
+    List<Object[]> fetchStudentPage(StudentFilter filter, int sortColumn, boolean ascending,
+                                    int page, int pageSize, Object[] afterKey) throws SQLException;
+
+    /** Streams a roster in; see StudentImporter for the format. */
+    StudentImporter.Result importStudents(Reader in, StudentImporter.ProgressListener listener)
+        throws IOException, SQLException;
+
+    // Voting sessions
+
+    /** Reserves a student for one voting session; see VoterClaim. */
+    VoterClaim claimVoter(String studentId) throws SQLException;
+
+    void releaseClaim(VoterClaim claim) throws SQLException;
+
+    /**
+     * Queues a ballot. Resubmitting the same ballotId never counts twice.
+     */
+    CompletableFuture<BallotOutcome> castBallot(String ballotId, String studentId, List<Integer> candidateIds);
+
+    /** Ballots accepted while the store couldn't write them through, still waiting. */
+    int getOfflineBallotCount();
+
+    /** Ballots counted so far, from the running total kept alongside the per-candidate counters. */
+    long getTotalVotes() throws SQLException;
+
+    // Candidates
+
+    /** Rows of {candidate_id, name}. */
+    List<Object[]> listCandidates() throws SQLException;
+
+    boolean isCandidate(String name) throws SQLException;
+
+    void addCandidate(String name, String position) throws SQLException;
+
+    /** @return false if there was no such candidate */
+    boolean deleteCandidate(int candidateId) throws SQLException;
+
+    // Election
+
+    /** Creates the election status record (inactive) if it is missing. */
+    void ensureElectionStatus() throws SQLException;
+
+    /** @return false if there is no election status record to update */
+    boolean setElectionActive(boolean active) throws SQLException;
+
+    /** Votes are only included once the election is no longer active. */
+    ElectionResults loadResults() throws SQLException;
+
+    /**
+     * Blocks until the results version differs from known or the timeout passes.
+     *
+     * @return the latest version (known on timeout)
+     */
+    long awaitResultsChange(long known, long timeoutMillis) throws InterruptedException;
+
+    final class Holder {
+        static final VoteStore INSTANCE = create(System.getProperty("voting.store", "jdbc"));
+
+        private Holder() {
+        }
+
+        private static VoteStore create(String kind) {
+            switch (kind) {
+                case "jdbc":
+                    return new JdbcVoteStore();
+                case "memory":
+                    return new InMemoryVoteStore();
+                default:
+                    throw new IllegalArgumentException("Unknown voting.store '" + kind + "' (use jdbc or memory)");
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import java.sql.*;
+import java.util.UUID;
+
+/**
+ * Reserves a student for one voting session.
+ *
+ * A claim is a lease on the student row: claimed_by names the kiosk session
+ * and claim_expires says when the lease lapses. A student is "in progress"
+ * while an unexpired lease is held; status stays not_voted until the ballot
+ * commits. tryClaim() checks that the election is active, that the student
+ * has not voted and that nobody else holds a live lease, and takes the lease,
+ * all in one conditional UPDATE. An abandoned session's lease simply expires
+ * and the next claim takes the row over.
+ */
+public class VoterClaim {
+    /** Voting session length plus slack for the commit. */
+    public static final int LEASE_SECONDS = 90;
+
+    private static volatile boolean schemaReady = false;
+
+    private final String studentId;
+    private final String owner;
+    private final String refusal;
+
+    private VoterClaim(String studentId, String owner, String refusal) {
+        this.studentId = studentId;
+        this.owner = owner;
+        this.refusal = refusal;
+    }
+
+    /** A claim held by owner, for stores that track leases themselves. */
+    static VoterClaim granted(String studentId, String owner) {
+        return new VoterClaim(studentId, owner, null);
+    }
+
+    static VoterClaim refused(String studentId, String refusal) {
+        return new VoterClaim(studentId, null, refusal);
+    }
+
+    /** Unique per session, so a release never frees someone else's lease. */
+    static String newOwner() {
+        return BallotLedger.KIOSK_ID + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    String getOwner() {
+        return owner;
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    public boolean isGranted() {
+        return refusal == null;
+    }
+
+    /**
+     * Why the claim was refused, ready to show to the admin; null if granted.
+     */
+    public String getRefusal() {
+        return refusal;
+    }
+
+    public static void ensureSchema(Connection con) throws SQLException {
+        if (schemaReady) {
+            return;
+        }
+        addColumnIfMissing(con, "claimed_by", "VARCHAR(100) NULL");
+        addColumnIfMissing(con, "claim_expires", "TIMESTAMP(3) NULL");
+        schemaReady = true;
+    }
+
+    private static void addColumnIfMissing(Connection con, String name, String definition) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                "SELECT 1 FROM information_schema.columns "
+                + "WHERE table_schema = DATABASE() AND table_name = 'student' AND column_name = ?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("ALTER TABLE student ADD COLUMN " + name + " " + definition);
+        } catch (SQLException e) {
+            if (e.getErrorCode() != 1060) { // ER_DUP_FIELDNAME: another kiosk added it first
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Tries to start a session for the student. Check isGranted() on the result.
+     */
+    public static VoterClaim tryClaim(Connection con, String studentId) throws SQLException {
+        ensureSchema(con);
+        String owner = newOwner();
+        try (PreparedStatement ps = con.prepareStatement(
+                "UPDATE student s JOIN election_status e ON e.id = 1 AND e.active = 1 "
+                + "SET s.claimed_by = ?, s.claim_expires = NOW(3) + INTERVAL " + LEASE_SECONDS + " SECOND "
+                + "WHERE s.student_id = ? AND s.status = 'not_voted' "
+                + "AND (s.claim_expires IS NULL OR s.claim_expires < NOW(3))")) {
+            ps.setString(1, owner);
+            ps.setString(2, studentId);
+            if (ps.executeUpdate() == 1) {
+                return new VoterClaim(studentId, owner, null);
+            }
+        }
+        return new VoterClaim(studentId, null, explainRefusal(con, studentId));
+    }
+
+    /**
+     * Why tryClaim() refused. Only runs on the failure path, so a successful
+     * claim stays a single statement.
+     */
+    private static String explainRefusal(Connection con, String studentId) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT active FROM election_status WHERE id = 1");
+             ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                return "Election status not configured. Contact Super Admin.";
+            }
+            if (rs.getInt("active") != 1) {
+                return "Election is not active. Please ask Super Admin to start the election.";
+            }
+        }
+        try (PreparedStatement ps = con.prepareStatement(
+                "SELECT status, claimed_by, GREATEST(0, TIMESTAMPDIFF(SECOND, NOW(3), claim_expires)) AS remaining "
+                + "FROM student WHERE student_id = ?")) {
+            ps.setString(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return "Student ID not found: " + studentId;
+                }
+                if ("voted".equalsIgnoreCase(rs.getString("status"))) {
+                    return "Student has already voted.";
+                }
+                String holder = rs.getString("claimed_by");
+                if (holder != null) {
+                    String kiosk = holder.contains("/") ? holder.substring(0, holder.indexOf('/')) : holder;
+                    return "Student is already voting at " + kiosk + ". Try again in "
+                        + rs.getInt("remaining") + "s if that session was abandoned.";
+                }
+            }
+        }
+        // The lease lapsed or was released between the two statements
+        return "Student could not be reserved just now. Please try again.";
+    }
+
+    /**
+     * Gives the student back early, e.g. when the session times out. A no-op
+     * once the ballot has committed or the lease went to someone else.
+     */
+    public void release(Connection con) throws SQLException {
+        if (!isGranted()) {
+            return;
+        }
+        try (PreparedStatement ps = con.prepareStatement(
+                "UPDATE student SET claimed_by = NULL, claim_expires = NULL "
+                + "WHERE student_id = ? AND claimed_by = ? AND status = 'not_voted'")) {
+            ps.setString(1, studentId);
+            ps.setString(2, owner);
+            ps.executeUpdate();
+        }
+    }
+}
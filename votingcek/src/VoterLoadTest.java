@@ -0,0 +1,316 @@
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Election-day rehearsal: many kiosks voting at once, headless.
+ *
+ * Each kiosk repeats what an admin and a voter do at the booth: claim the next
+ * student (AdminDashboard.startVotingForStudent), think for a while, then
+ * cast a ballot (StudentVotingPage.castVotes). Some kiosks deliberately type a
+ * student that is already taken, and some resubmit a ballot as a retry would,
+ * so the claim and dedup paths see contention too.
+ *
+ * At the end the election is closed and the counters are checked:
+ *   - sum of candidate votes = BALLOT_SIZE x newly voted students
+ *   - the running vote total = newly voted students
+ *   - no student has two different ballots accepted (and, on MySQL, no two ledger rows)
+ * Checks compare against a baseline, so a scratch database can be reused.
+ *
+ *   java -cp bin:lib/* VoterLoadTest [kiosks] [students] [think-ms] [uniform|skewed]
+ *   java -Dvoting.store=jdbc -Dvoting.db.url=jdbc:mysql://localhost:3306/voting_bench -cp bin:lib/* VoterLoadTest 200 20000 50
+ *
+ * Tunables (system properties): load.candidates, load.ballotSize, load.collisionRate, load.retryRate.
+ * Exits with status 1 if an invariant is broken.
+ */
+public class VoterLoadTest {
+    private static final int CANDIDATES = Integer.getInteger("load.candidates", 8);
+    private static final int BALLOT_SIZE = Integer.getInteger("load.ballotSize", 2);
+    private static final double COLLISION_RATE = Double.parseDouble(System.getProperty("load.collisionRate", "0.05"));
+    private static final double RETRY_RATE = Double.parseDouble(System.getProperty("load.retryRate", "0.02"));
+
+    private final VoteStore store;
+    private final int kiosks;
+    private final int thinkMillis;
+    private final boolean skewed;
+    private final String prefix = "lt" + Long.toString(System.currentTimeMillis() % 1_000_000, 36) + "-";
+    private final List<String> studentIds = new ArrayList<>();
+    private final List<Integer> candidateIds = new ArrayList<>();
+
+    private final AtomicInteger nextStudent = new AtomicInteger();
+    private final ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+    // First accepted ballot id per student; a second, different one is a double vote
+    private final Map<String, String> acceptedBallots = new ConcurrentHashMap<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder offline = new LongAdder();
+    private final LongAdder refusedClaims = new LongAdder();
+    private final LongAdder rejectedBallots = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder doubleVotes = new LongAdder();
+
+    private VoterLoadTest(VoteStore store, int kiosks, int thinkMillis, boolean skewed) {
+        this.store = store;
+        this.kiosks = kiosks;
+        this.thinkMillis = thinkMillis;
+        this.skewed = skewed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int kiosks = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int students = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int think = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        boolean skewed = args.length > 3 && args[3].equalsIgnoreCase("skewed");
+
+        VoteStore store;
+        if (System.getProperty("voting.store", "memory").equals("jdbc")) {
+            ElectionBenchmark.prepareScratchDatabase();
+            store = new JdbcVoteStore();
+        } else {
+            store = new InMemoryVoteStore();
+        }
+
+        VoterLoadTest test = new VoterLoadTest(store, kiosks, think, skewed);
+        test.seed(students);
+        boolean ok = test.run();
+        System.exit(ok ? 0 : 1);
+    }
+
+    private void seed(int students) throws Exception {
+        store.ensureElectionStatus();
+        store.setElectionActive(false);
+        StringBuilder roster = new StringBuilder();
+        for (int i = 0; i < students; i++) {
+            String id = prefix + i;
+            studentIds.add(id);
+            roster.append(id).append('\n');
+        }
+        store.importStudents(new StringReader(roster.toString()), null);
+        for (int i = 0; i < CANDIDATES; i++) {
+            store.addCandidate(prefix + "cand" + i, "position" + i % 3);
+        }
+        for (Object[] c : store.listCandidates()) {
+            if (((String) c[1]).startsWith(prefix)) {
+                candidateIds.add((Integer) c[0]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        Totals before = totals();
+        store.setElectionActive(true);
+
+        System.out.printf("%d kiosks, %d students, %d ms think time, %s ballots of %d on %s%n", kiosks,
+            studentIds.size(), thinkMillis, skewed ? "skewed" : "uniform", BALLOT_SIZE, store.getClass().getSimpleName());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int k = 0; k < kiosks; k++) {
+            Thread t = new Thread(() -> kiosk(start), "kiosk-" + k);
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+
+        // Ballots journaled while the database was away are counted on replay
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (store.getOfflineBallotCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(200);
+        }
+        store.setElectionActive(false);
+
+        report(seconds);
+        return verify(before, totals());
+    }
+
+    private void kiosk(CountDownLatch start) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] samples = new long[64];
+        int count = 0;
+        try {
+            start.await();
+            while (true) {
+                String studentId;
+                if (random.nextDouble() < COLLISION_RATE && nextStudent.get() > 0) {
+                    // Someone types a student that was already called up
+                    studentId = studentIds.get(random.nextInt(Math.min(nextStudent.get(), studentIds.size())));
+                } else {
+                    int n = nextStudent.getAndIncrement();
+                    if (n >= studentIds.size()) {
+                        break;
+                    }
+                    studentId = studentIds.get(n);
+                }
+
+                VoterClaim claim;
+                try {
+                    claim = store.claimVoter(studentId);
+                } catch (SQLException e) {
+                    errors.increment();
+                    continue;
+                }
+                if (!claim.isGranted()) {
+                    refusedClaims.increment();
+                    continue;
+                }
+                if (thinkMillis > 0) {
+                    Thread.sleep(random.nextInt(thinkMillis * 2 + 1));
+                }
+
+                String ballotId = UUID.randomUUID().toString();
+                List<Integer> ballot = pickBallot(random);
+                int attempts = random.nextDouble() < RETRY_RATE ? 2 : 1;
+                for (int a = 0; a < attempts; a++) {
+                    long begin = System.nanoTime();
+                    BallotOutcome outcome;
+                    try {
+                        outcome = store.castBallot(ballotId, studentId, ballot).get();
+                    } catch (Exception e) {
+                        errors.increment();
+                        continue;
+                    }
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, count * 2);
+                    }
+                    samples[count++] = System.nanoTime() - begin;
+                    record(studentId, ballotId, outcome);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            latencies.add(Arrays.copyOf(samples, count));
+        }
+    }
+
+    private void record(String studentId, String ballotId, BallotOutcome outcome) {
+        switch (outcome) {
+            case ACCEPTED:
+            case RECORDED_OFFLINE:
+                String first = acceptedBallots.putIfAbsent(studentId, ballotId);
+                if (first == null) {
+                    (outcome == BallotOutcome.ACCEPTED ? accepted : offline).increment();
+                } else if (!first.equals(ballotId)) {
+                    doubleVotes.increment();
+                    System.err.println("Student " + studentId + " had ballots " + first + " and " + ballotId + " accepted");
+                }
+                break;
+            default:
+                rejectedBallots.increment();
+        }
+    }
+
+    /**
+     * BALLOT_SIZE distinct candidates; skewed ballots favour the first candidates (weight 1/rank).
+     */
+    private List<Integer> pickBallot(ThreadLocalRandom random) {
+        List<Integer> pool = new ArrayList<>(candidateIds);
+        List<Integer> ballot = new ArrayList<>(BALLOT_SIZE);
+        while (ballot.size() < BALLOT_SIZE && !pool.isEmpty()) {
+            int index;
+            if (skewed) {
+                double total = 0;
+                for (int i = 0; i < pool.size(); i++) {
+                    total += 1.0 / (i + 1);
+                }
+                double r = random.nextDouble() * total;
+                index = 0;
+                while (index < pool.size() - 1 && (r -= 1.0 / (index + 1)) > 0) {
+                    index++;
+                }
+            } else {
+                index = random.nextInt(pool.size());
+            }
+            ballot.add(pool.remove(index));
+        }
+        return ballot;
+    }
+
+    private static final class Totals {
+        long candidateVotes;
+        long votedStudents;
+        long totalVotes;
+    }
+
+    private Totals totals() throws SQLException {
+        Totals t = new Totals();
+        ElectionResults results = store.loadResults();
+        for (ResultsListModel.Row row : results.rows) {
+            t.candidateVotes += row.votes;
+        }
+        t.votedStudents = results.totalVoters;
+        t.totalVotes = store.getTotalVotes();
+        return t;
+    }
+
+    private void report(double seconds) {
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        long counted = accepted.sum() + offline.sum();
+        System.out.printf("%.1f s, %d ballots counted (%d offline), %.1f ballots/s%n",
+            seconds, counted, offline.sum(), counted / seconds);
+        System.out.printf("refused claims %d, rejected ballots %d, errors %d%n",
+            refusedClaims.sum(), rejectedBallots.sum(), errors.sum());
+        System.out.printf("commit latency ms: p50 %.3f  p99 %.3f  p999 %.3f  max %.3f  (%d samples)%n",
+            percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, percentile(all, 0.999) / 1e6,
+            all.length == 0 ? 0 : all[all.length - 1] / 1e6, all.length);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private boolean verify(Totals before, Totals after) throws SQLException {
+        long voted = after.votedStudents - before.votedStudents;
+        long candidateVotes = after.candidateVotes - before.candidateVotes;
+        long totalVotes = after.totalVotes - before.totalVotes;
+        long counted = accepted.sum() + offline.sum();
+
+        boolean ok = true;
+        ok &= check("voted students = ballots counted", voted, counted);
+        ok &= check("candidate votes = " + BALLOT_SIZE + " x voted students", candidateVotes, BALLOT_SIZE * voted);
+        ok &= check("vote total = voted students", totalVotes, voted);
+        ok &= check("students with two accepted ballots", doubleVotes.sum(), 0);
+        if (store instanceof JdbcVoteStore) {
+            ok &= check("students with two ledger rows", duplicateLedgerRows(), 0);
+        }
+        System.out.println(ok ? "All invariants hold" : "INVARIANTS BROKEN");
+        return ok;
+    }
+
+    private boolean check(String name, long actual, long expected) {
+        boolean ok = actual == expected;
+        System.out.printf("  %-40s %10d %s%n", name, actual, ok ? "ok" : "EXPECTED " + expected);
+        return ok;
+    }
+
+    private long duplicateLedgerRows() throws SQLException {
+        try (Connection con = DBConnection.getConnection();
+             Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery(
+                 "SELECT COUNT(*) FROM (SELECT student_id FROM ballot WHERE student_id LIKE '" + prefix
+                 + "%' GROUP BY student_id HAVING COUNT(*) > 1) d")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
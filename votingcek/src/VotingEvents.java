@@ -0,0 +1,146 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events for the kiosk and the database paths behind it,
+ * so a UI stall can be lined up against lock waits, GC or socket reads in the
+ * same recording. Each event spans the whole operation as the user sees it,
+ * from the click (or timer tick) to the screen being updated.
+ *
+ * Events cost next to nothing unless a recording is running. The voting.jfc
+ * profile next to src enables them together with the JDK events worth having
+ * when chasing a stall, cheap enough for continuous recording:
+ *
+ *   java -XX:StartFlightRecording=settings=voting.jfc,maxage=6h,disk=true,dumponexit=true,filename=kiosk.jfr ...
+ *
+ * Student ids are never recorded in the clear; they are hashed with a salt
+ * chosen at startup, so events for the same student can be matched within one
+ * run but the hash can't be looked up against the roster.
+ */
+public final class VotingEvents {
+    private static final byte[] SALT = new byte[16];
+
+    static {
+        new SecureRandom().nextBytes(SALT);
+    }
+
+    private VotingEvents() {
+    }
+
+    static String hashStudentId(String studentId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(SALT);
+            byte[] hash = digest.digest(studentId.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Name("voting.SessionOpen")
+    @Label("Voting Session Open")
+    @Category({ "College Voting", "Kiosk" })
+    @Description("Start Voting clicked until the ballot screen is up (or the student was turned away)")
+    static final class SessionOpen extends Event {
+        @Label("Student Id Hash")
+        String studentIdHash;
+
+        @Label("Granted")
+        boolean granted;
+
+        void setStudent(String studentId) {
+            if (isEnabled()) {
+                studentIdHash = hashStudentId(studentId);
+            }
+        }
+    }
+
+    @Name("voting.CandidateLoad")
+    @Label("Candidate Load")
+    @Category({ "College Voting", "Kiosk" })
+    @Description("Fetching the candidates and laying out the ballot cards")
+    static final class CandidateLoad extends Event {
+        @Label("Student Id Hash")
+        String studentIdHash;
+
+        @Label("Candidate Count")
+        int candidateCount;
+
+        @Label("Failed")
+        boolean failed;
+
+        void setStudent(String studentId) {
+            if (isEnabled()) {
+                studentIdHash = hashStudentId(studentId);
+            }
+        }
+    }
+
+    @Name("voting.BallotCommit")
+    @Label("Ballot Commit")
+    @Category({ "College Voting", "Database" })
+    @Description("One group-commit batch of ballots, including retries and the fall back to the journal")
+    static final class BallotCommit extends Event {
+        @Label("Ballots")
+        int ballots;
+
+        @Label("Rows Affected")
+        @Description("Ballots accepted, including retries of ballots that were already in")
+        int rowsAffected;
+
+        @Label("Recorded Offline")
+        boolean offline;
+
+        @Label("Failed")
+        boolean failed;
+    }
+
+    @Name("voting.ResultsRefresh")
+    @Label("Results Refresh")
+    @Category({ "College Voting", "Admin" })
+    @Description("Loading the results and repainting the admin dashboard")
+    static final class ResultsRefresh extends Event {
+        @Label("Election Active")
+        boolean active;
+
+        @Label("Candidate Count")
+        int candidateCount;
+
+        @Label("Total Voters")
+        int totalVoters;
+
+        @Label("Failed")
+        boolean failed;
+    }
+
+    @Name("voting.BulkImport")
+    @Label("Bulk Import")
+    @Category({ "College Voting", "Database" })
+    @Description("A student roster import, start to finish")
+    static final class BulkImport extends Event {
+        @Label("Rows Affected")
+        @Description("Students inserted")
+        int rowsAffected;
+
+        @Label("Skipped")
+        int skipped;
+
+        @Label("Invalid")
+        int invalid;
+
+        @Label("Completed")
+        boolean completed;
+    }
+}